@@ -0,0 +1,76 @@
+package com.n26.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.n26.model.Transaction;
+
+/**
+ * Per-thread transactions whose amounts follow the configured distribution.
+ * <ul>
+ * <li>uniform: 0.01 to 1000.00</li>
+ * <li>skewed: mostly small amounts with rare large ones, like card
+ * payments</li>
+ * <li>wide: up to 12 integer digits and 6 fraction digits, which leaves the
+ * fixed-point scale</li>
+ * </ul>
+ * Amounts are generated up front so that the allocation reported by the GC
+ * profiler belongs to the engine.
+ */
+@State(Scope.Thread)
+public class AmountState {
+	private static final int SIZE = 1024;
+
+	@Param({ "uniform", "skewed", "wide" })
+	public String distribution;
+
+	private final Transaction[] transactions = new Transaction[SIZE];
+	private final int[] ages = new int[SIZE];
+	private int next;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			transactions[i] = new Transaction();
+			transactions[i].setAmount(nextAmount(random));
+			ages[i] = random.nextInt(Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * @param minAge
+	 *            minimum age of the transaction in milliseconds
+	 * @param maxAge
+	 *            maximum age of the transaction in milliseconds, exclusive
+	 * @return next {@link Transaction}, timestamped a random time ago
+	 */
+	Transaction next(long minAge, long maxAge) {
+		int index = next++ & (SIZE - 1);
+		long age = minAge + ages[index] % (maxAge - minAge);
+
+		Transaction transaction = transactions[index];
+		transaction.setTimestamp(Instant.ofEpochMilli(System.currentTimeMillis() - age));
+		return transaction;
+	}
+
+	private BigDecimal nextAmount(SplittableRandom random) {
+		switch (distribution) {
+		case "uniform":
+			return BigDecimal.valueOf(random.nextLong(1, 100_001), 2);
+		case "skewed":
+			double value = Math.exp(random.nextDouble() * Math.log(1_000_000));
+			return BigDecimal.valueOf(Math.round(value), 2);
+		case "wide":
+			return BigDecimal.valueOf(random.nextLong(1, 1_000_000_000_000_000_000L), 6);
+		default:
+			throw new IllegalArgumentException("Unknown amount distribution: " + distribution);
+		}
+	}
+}
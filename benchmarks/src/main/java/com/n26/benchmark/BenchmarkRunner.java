@@ -0,0 +1,28 @@
+package com.n26.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the usual JMH command line once per thread
+ * count, with the GC profiler reporting allocation rates. Results are written
+ * to jmh-result-&lt;threads&gt;.json.
+ */
+public class BenchmarkRunner {
+	private static final int[] THREADS = { 1, 4, 16, 64 };
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+		for (int threads : THREADS) {
+			Options options = new OptionsBuilder().parent(commandLineOptions).threads(threads)
+					.addProfiler(GCProfiler.class).resultFormat(ResultFormatType.JSON)
+					.result("jmh-result-" + threads + ".json").build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.n26.benchmark;
+
+import java.time.Clock;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.n26.admission.IngestAdmission;
+import com.n26.dedup.TransactionIdFilter;
+import com.n26.journal.TransactionJournal;
+import com.n26.service.TransactionService;
+import com.n26.service.impl.TransactionServiceImpl;
+import com.n26.store.TransactionStore;
+import com.n26.window.StatisticArchive;
+import com.n26.window.StatisticWindow;
+import com.n26.window.WindowConfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link TransactionService} shared by all benchmark threads, created the same
+ * way as the application does from its properties
+ */
+@State(Scope.Benchmark)
+public class EngineState {
+	/**
+	 * Buckets per window, as with the default 60 seconds window and 1
+	 * second buckets
+	 */
+	private static final int BUCKETS_PER_WINDOW = 60;
+
+	@Param({ "1000", "60000", "300000" })
+	public int windowMillis;
+
+	@Param({ "locked", "striped", "pipeline" })
+	public String ingestMode;
+
+	@Param({ "big-decimal" })
+	public String arithmetic;
+
+	TransactionService transactionService;
+	private StatisticWindow statisticWindow;
+
+	@Setup
+	public void setUp() {
+		statisticWindow = new WindowConfig().statisticWindow(windowMillis, getBucketMillis(), "", "wheel",
+				ingestMode, 0, 65536, "blocking", 10, arithmetic, 2, 0.01);
+		transactionService = new TransactionServiceImpl(statisticWindow, TransactionJournal.NONE,
+				StatisticArchive.NONE, TransactionStore.NONE, TransactionIdFilter.NONE, IngestAdmission.UNLIMITED,
+				Clock.systemUTC(), new SimpleMeterRegistry(), windowMillis);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (statisticWindow instanceof AutoCloseable) {
+			((AutoCloseable) statisticWindow).close();
+		}
+	}
+
+	int getBucketMillis() {
+		return Math.max(1, windowMillis / BUCKETS_PER_WINDOW);
+	}
+}
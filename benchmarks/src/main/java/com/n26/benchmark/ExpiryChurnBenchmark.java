@@ -0,0 +1,54 @@
+package com.n26.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.n26.model.Statistic;
+
+/**
+ * Transactions close to the end of the window, so that the buckets they land
+ * in expire within a few bucket durations. Every bucket boundary expires
+ * filled buckets, evicts reused slots and invalidates the published
+ * statistic.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpiryChurnBenchmark {
+
+	@Benchmark
+	public void saveExpiring(EngineState engine, AmountState amounts) {
+		save(engine, amounts);
+	}
+
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(3)
+	public void churnSave(EngineState engine, AmountState amounts) {
+		save(engine, amounts);
+	}
+
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(1)
+	public Statistic churnGetStatistic(EngineState engine) {
+		return engine.transactionService.getStatistic();
+	}
+
+	private static void save(EngineState engine, AmountState amounts) {
+		int bucketMillis = engine.getBucketMillis();
+		engine.transactionService
+				.saveTransaction(amounts.next(engine.windowMillis - 4 * bucketMillis, engine.windowMillis - bucketMillis));
+	}
+}
@@ -0,0 +1,402 @@
+package com.n26.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.benchmark.LoadScript.Step;
+import com.n26.window.QuantileMapping;
+import com.n26.window.QuantileSketch;
+
+/**
+ * Drives a running instance with the requests of HttpJsonIT scripts at a
+ * target rate over many concurrent connections, then checks /statistics
+ * against a {@link StatisticModel} of the accepted transactions.
+ * <p>
+ * Every connection is served by its own thread. Requests are scheduled at
+ * fixed intervals from the start of the run, and their latency is measured
+ * from their scheduled time rather than from the time they were sent, so a
+ * slow service is not hidden by the generator waiting for it. Throughput and
+ * errors are reported every ten seconds, which shows a soak test degrading,
+ * and latency percentiles at the end.
+ * <p>
+ * Slow clients may be added, each sending a transaction one byte of its body
+ * at a time, to show how many of them the instance serves before they take
+ * every request thread and hold up the other requests. Their transaction is
+ * outdated, so it does not change the statistic.
+ * <p>
+ * The statistic is deleted at the start, and the instance must not receive
+ * other transactions during the run.
+ */
+public class LoadGenerator {
+	private static final int TIMEOUT_IN_MILLISECONDS = 10_000;
+	private static final long REPORT_INTERVAL_IN_SECONDS = 10;
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String SLOW_BODY = "{\"amount\":\"1\",\"timestamp\":\"2018-07-17T09:59:51.312Z\"}";
+
+	private final String baseUrl;
+	private final List<Step> steps;
+	private final StatisticModel model;
+	private final QuantileMapping latencyMapping = new QuantileMapping(QuantileMapping.DEFAULT_RELATIVE_ACCURACY);
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder transportErrors = new LongAdder();
+	private final LongAdder slowRequests = new LongAdder();
+	private final LongAdder slowErrors = new LongAdder();
+	private final Map<String, LongAdder> unexpectedStatuses = new ConcurrentHashMap<>();
+
+	public LoadGenerator(String baseUrl, List<Step> steps, StatisticModel model) {
+		this.baseUrl = baseUrl;
+		this.steps = steps;
+		this.model = model;
+	}
+
+	/**
+	 * Usage: LoadGenerator [--url=http://localhost:8080] [--rate=1000]
+	 * [--connections=64] [--duration=60] [--window=60000] [--tolerance=1000]
+	 * [--slow-clients=0] [--slow-interval=100] script...
+	 * <p>
+	 * The rate is in requests per second, the duration in seconds, the window
+	 * and the tolerance of the {@link StatisticModel} and the interval between
+	 * the bytes sent by a slow client in milliseconds. The process exits with
+	 * 1 if a request failed or the statistic does not match.
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		options.put("url", "http://localhost:8080");
+		options.put("rate", "1000");
+		options.put("connections", "64");
+		options.put("duration", "60");
+		options.put("window", "60000");
+		options.put("tolerance", "1000");
+		options.put("slow-clients", "0");
+		options.put("slow-interval", "100");
+
+		List<Path> scripts = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+				String name = arg.substring(2, arg.indexOf('='));
+				if (!options.containsKey(name)) {
+					throw new IllegalArgumentException("Unknown option: " + arg);
+				}
+				options.put(name, arg.substring(arg.indexOf('=') + 1));
+			} else {
+				scripts.add(Paths.get(arg));
+			}
+		}
+		if (scripts.isEmpty()) {
+			throw new IllegalArgumentException("No script given, e.g. src/it/resources/testcases/http02.json");
+		}
+
+		int connections = Integer.parseInt(options.get("connections"));
+		System.setProperty("http.maxConnections", String.valueOf(connections));
+
+		LoadScript script = LoadScript.read(new ObjectMapper(), scripts);
+		StatisticModel model = new StatisticModel(Long.parseLong(options.get("window")),
+				Long.parseLong(options.get("tolerance")));
+		LoadGenerator generator = new LoadGenerator(options.get("url"), script.getSteps(), model);
+
+		System.out.printf("Replaying %d requests of %s (%d sleeps and deletes skipped)%n", script.getSteps().size(),
+				scripts, script.getSkipped());
+		boolean passed = generator.run(Double.parseDouble(options.get("rate")), connections,
+				Long.parseLong(options.get("duration")), Integer.parseInt(options.get("slow-clients")),
+				Long.parseLong(options.get("slow-interval")));
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Runs the load and checks the statistic
+	 *
+	 * @param rate
+	 *            requests per second
+	 * @param connections
+	 *            number of concurrent connections
+	 * @param durationInSeconds
+	 * @param slowClients
+	 *            number of clients sending their body slowly
+	 * @param slowIntervalInMilliSeconds
+	 *            interval between the bytes of a slow client
+	 * @return true if every request got its expected status and the statistic
+	 *         matches the model
+	 */
+	public boolean run(double rate, int connections, long durationInSeconds, int slowClients,
+			long slowIntervalInMilliSeconds) throws Exception {
+		if (send("DELETE", "/transactions", null).status != 204) {
+			throw new IllegalStateException("Could not delete the transactions of " + baseUrl);
+		}
+
+		long intervalInNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(durationInSeconds);
+
+		ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+		reporter.scheduleAtFixedRate(new Reporter(start), REPORT_INTERVAL_IN_SECONDS, REPORT_INTERVAL_IN_SECONDS,
+				TimeUnit.SECONDS);
+
+		URL url = new URL(baseUrl);
+		List<SlowClient> slow = new ArrayList<>();
+		for (int i = 0; i < slowClients; i++) {
+			SlowClient client = new SlowClient(url, end, slowIntervalInMilliSeconds);
+			client.setName("slow-" + i);
+			client.setDaemon(true);
+			client.start();
+			slow.add(client);
+		}
+
+		List<Worker> workers = new ArrayList<>();
+		for (int i = 0; i < connections; i++) {
+			Worker worker = new Worker(start, end, intervalInNanos);
+			worker.setName("load-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+
+		QuantileSketch latencies = new QuantileSketch(latencyMapping);
+		long maxLatency = 0;
+		for (Worker worker : workers) {
+			worker.join();
+			latencies.merge(worker.latencies);
+			maxLatency = Math.max(maxLatency, worker.maxLatency);
+		}
+		long elapsed = System.nanoTime() - start;
+		reporter.shutdownNow();
+		for (SlowClient client : slow) {
+			client.interrupt();
+		}
+
+		long requests = completed.sum();
+		long errors = transportErrors.sum();
+		for (LongAdder count : unexpectedStatuses.values()) {
+			errors += count.sum();
+		}
+
+		System.out.printf("Requests: %d in %.1f s, %.0f/s (target %.0f/s)%n", requests, elapsed / 1e9,
+				requests / (elapsed / 1e9), rate);
+		StringBuilder percentiles = new StringBuilder("Latency ms:");
+		for (double percentile : PERCENTILES) {
+			// A bin may stand for a value slightly above the largest latency
+			double latency = Math.min(latencies.getValueAt(percentile) * 1000, maxLatency);
+			percentiles.append(String.format(" p%.1f=%.2f", percentile * 100, latency / 1e6));
+		}
+		System.out.println(percentiles.append(String.format(" max=%.2f", maxLatency / 1e6)));
+		System.out.printf("Errors: %d (%.3f%%), transport %d%n", errors, requests == 0 ? 0 : 100.0 * errors / requests,
+				transportErrors.sum());
+		unexpectedStatuses.forEach((name, count) -> System.out.printf("  %s: %d%n", name, count.sum()));
+		if (slowClients > 0) {
+			System.out.printf("Slow clients: %d, %d requests completed, %d failed%n", slowClients, slowRequests.sum(),
+					slowErrors.sum());
+		}
+
+		return checkStatistic() && errors == 0;
+	}
+
+	private boolean checkStatistic() throws IOException {
+		long before = System.currentTimeMillis();
+		Response response = send("GET", "/statistics", null);
+		long after = System.currentTimeMillis();
+		if (response.status != 200) {
+			System.out.println("Statistic: status " + response.status);
+			return false;
+		}
+
+		JsonNode statistic = new ObjectMapper().readTree(response.body);
+		List<String> mismatches = model.check(statistic, before, after);
+		System.out.println("Statistic: " + statistic + (mismatches.isEmpty() ? " matches" : " " + mismatches));
+		return mismatches.isEmpty();
+	}
+
+	private Response send(String method, String path, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(TIMEOUT_IN_MILLISECONDS);
+		connection.setReadTimeout(TIMEOUT_IN_MILLISECONDS);
+
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		int status = connection.getResponseCode();
+		// Reads the whole body, so the connection is kept alive for the next
+		// request
+		InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+		StringBuilder content = new StringBuilder();
+		if (in != null) {
+			try (InputStream stream = in) {
+				byte[] buffer = new byte[4096];
+				for (int read; (read = stream.read(buffer)) > 0;) {
+					content.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return new Response(status, content.toString());
+	}
+
+	private static class Response {
+		private final int status;
+		private final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * A connection, sending the requests scheduled for it one after another
+	 */
+	private class Worker extends Thread {
+		private final long start;
+		private final long end;
+		private final long intervalInNanos;
+		private final QuantileSketch latencies = new QuantileSketch(latencyMapping);
+		private long maxLatency;
+
+		Worker(long start, long end, long intervalInNanos) {
+			this.start = start;
+			this.end = end;
+			this.intervalInNanos = intervalInNanos;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				long next = sequence.getAndIncrement();
+				long scheduled = start + next * intervalInNanos;
+				if (scheduled >= end) {
+					return;
+				}
+
+				for (long wait; (wait = scheduled - System.nanoTime()) > 0;) {
+					LockSupport.parkNanos(wait);
+				}
+
+				Step step = steps.get((int) (next % steps.size()));
+				execute(step);
+
+				long latency = System.nanoTime() - scheduled;
+				latencies.add(latencyMapping.keyOf(BigDecimal.valueOf(latency, 3)));
+				maxLatency = Math.max(maxLatency, latency);
+				completed.increment();
+			}
+		}
+
+		private void execute(Step step) {
+			long now = System.currentTimeMillis();
+			try {
+				Response response = send(step.getMethod(), step.getUrl(), step.hasBody() ? step.bodyAt(now) : null);
+				if (response.status != step.getExpectedStatus()) {
+					unexpectedStatuses.computeIfAbsent(step.getName() + ", found " + response.status,
+							name -> new LongAdder()).increment();
+				} else if (step.isAccepted()) {
+					model.add(step.getAmount(), step.timestampAt(now));
+				}
+			} catch (IOException ex) {
+				transportErrors.increment();
+			}
+		}
+	}
+
+	/**
+	 * A client sending an outdated transaction one byte at a time, again and
+	 * again until the end of the run
+	 */
+	private class SlowClient extends Thread {
+		private final URL url;
+		private final long end;
+		private final long intervalInMilliSeconds;
+
+		SlowClient(URL url, long end, long intervalInMilliSeconds) {
+			this.url = url;
+			this.end = end;
+			this.intervalInMilliSeconds = intervalInMilliSeconds;
+		}
+
+		@Override
+		public void run() {
+			byte[] body = SLOW_BODY.getBytes(StandardCharsets.UTF_8);
+			String headers = "POST /transactions HTTP/1.1\r\nHost: " + url.getHost() + "\r\nContent-Type: "
+					+ "application/json\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+
+			while (System.nanoTime() < end && !isInterrupted()) {
+				try (Socket socket = new Socket()) {
+					socket.connect(new InetSocketAddress(url.getHost(), url.getPort() < 0 ? 80 : url.getPort()),
+							TIMEOUT_IN_MILLISECONDS);
+					OutputStream out = socket.getOutputStream();
+					out.write(headers.getBytes(StandardCharsets.US_ASCII));
+					for (byte b : body) {
+						out.flush();
+						Thread.sleep(intervalInMilliSeconds);
+						out.write(b);
+					}
+					out.flush();
+
+					socket.setSoTimeout(TIMEOUT_IN_MILLISECONDS);
+					InputStream in = socket.getInputStream();
+					while (in.read() >= 0) {
+						// Reads the response until the connection is closed
+					}
+					slowRequests.increment();
+				} catch (IOException ex) {
+					slowErrors.increment();
+				} catch (InterruptedException ex) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reports the throughput and the errors of the last interval, and drops
+	 * expired transactions from the model
+	 */
+	private class Reporter implements Runnable {
+		private final long start;
+		private long lastCompleted;
+		private long lastErrors;
+
+		Reporter(long start) {
+			this.start = start;
+		}
+
+		@Override
+		public void run() {
+			long requests = completed.sum();
+			long errors = transportErrors.sum();
+			for (LongAdder count : unexpectedStatuses.values()) {
+				errors += count.sum();
+			}
+
+			System.out.printf("%4d s: %.0f/s, %d errors%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+					(requests - lastCompleted) / (double) REPORT_INTERVAL_IN_SECONDS, errors - lastErrors);
+			lastCompleted = requests;
+			lastErrors = errors;
+			model.expire(System.currentTimeMillis());
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.n26.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Requests of the scripts used by HttpJsonIT: one JSON object per line with
+ * either a request and its expected response, or a sleep.
+ * <p>
+ * Under load the requests of all scripts are interleaved, so a script can not
+ * rely on the order of its requests any more. Only the posted transactions
+ * and the reads are therefore replayed, and responses are only checked for
+ * their status code. Sleeps are skipped, as the target rate paces the
+ * requests, and so are deletes, which would reset the statistic under the
+ * other connections.
+ */
+public class LoadScript {
+	private static final String TIMESTAMP_OFFSET_PROPERTY = "_timestampOffset";
+	private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX").withZone(ZoneId.of("UTC"));
+
+	private final List<Step> steps;
+	private final int skipped;
+
+	private LoadScript(List<Step> steps, int skipped) {
+		this.steps = steps;
+		this.skipped = skipped;
+	}
+
+	/**
+	 * Reads the replayable requests of the given scripts
+	 *
+	 * @param objectMapper
+	 * @param scripts
+	 *            paths of the scripts
+	 * @return {@link LoadScript}
+	 * @throws IOException
+	 *             if a script can not be read or parsed
+	 */
+	public static LoadScript read(ObjectMapper objectMapper, List<Path> scripts) throws IOException {
+		List<Step> steps = new ArrayList<>();
+		int skipped = 0;
+
+		for (Path script : scripts) {
+			for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+
+				JsonNode command = objectMapper.readTree(line);
+				JsonNode request = command.get("request");
+				String method = request == null ? null : request.get("method").asText();
+				if ("POST".equals(method) || "GET".equals(method)) {
+					steps.add(new Step(method, request.get("url").asText(), request.get("body"),
+							command.get("response").get("status_code").asInt()));
+				} else {
+					skipped++;
+				}
+			}
+		}
+
+		if (steps.isEmpty()) {
+			throw new IllegalArgumentException("No request to replay in " + scripts);
+		}
+		return new LoadScript(Collections.unmodifiableList(steps), skipped);
+	}
+
+	public List<Step> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Number of sleeps and deletes which are not replayed
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * A request with its expected status code
+	 */
+	public static class Step {
+		private final String method;
+		private final String url;
+		private final JsonNode body;
+		private final int expectedStatus;
+		private final String name;
+
+		Step(String method, String url, JsonNode body, int expectedStatus) {
+			this.method = method;
+			this.url = url;
+			this.body = body;
+			this.expectedStatus = expectedStatus;
+			this.name = method + " " + url + " " + expectedStatus;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public int getExpectedStatus() {
+			return expectedStatus;
+		}
+
+		/**
+		 * Method, url and expected status, which identify the step in the
+		 * report
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public boolean hasBody() {
+			return "POST".equals(method);
+		}
+
+		/**
+		 * Converts the timestamp offset of the body to a timestamp relative to
+		 * now, as HttpJsonIT does
+		 *
+		 * @param now
+		 *            current epoch milliseconds
+		 * @return body to send
+		 */
+		public String bodyAt(long now) {
+			if (!body.isObject() || !body.has(TIMESTAMP_OFFSET_PROPERTY)) {
+				return body.toString();
+			}
+
+			ObjectNode bodyObject = ((ObjectNode) body).deepCopy();
+			long offset = bodyObject.remove(TIMESTAMP_OFFSET_PROPERTY).asLong();
+			bodyObject.put("timestamp", TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(now + offset)));
+			return bodyObject.toString();
+		}
+
+		/**
+		 * @param now
+		 *            epoch milliseconds the body was created at
+		 * @return epoch milliseconds of the posted transaction
+		 */
+		public long timestampAt(long now) {
+			return now + body.get(TIMESTAMP_OFFSET_PROPERTY).asLong();
+		}
+
+		/**
+		 * @return true if the step posts a transaction which is expected to
+		 *         enter the statistic
+		 */
+		public boolean isAccepted() {
+			return expectedStatus == 201 && body.isObject() && body.has(TIMESTAMP_OFFSET_PROPERTY)
+					&& body.has("amount");
+		}
+
+		public BigDecimal getAmount() {
+			return new BigDecimal(body.get("amount").asText());
+		}
+	}
+}
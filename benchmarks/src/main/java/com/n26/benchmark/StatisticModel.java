@@ -0,0 +1,167 @@
+package com.n26.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Expected statistic of the transactions accepted during a load run, kept per
+ * epoch millisecond of their timestamp.
+ * <p>
+ * The service drops a transaction up to a bucket earlier than its exact
+ * expiry, and its clock is not the clock of the load generator, so a
+ * transaction whose expiry is within the tolerance of the read may or may not
+ * be counted. If there is none, every value has to match exactly. Otherwise
+ * the count and the sum have to lie between the values without and with
+ * those transactions.
+ */
+public class StatisticModel {
+	private final long windowInMilliSeconds;
+	private final long toleranceInMilliSeconds;
+	private final ConcurrentSkipListMap<Long, Aggregate> aggregates = new ConcurrentSkipListMap<>();
+
+	/**
+	 * @param windowInMilliSeconds
+	 *            window of the statistic, cache.time.in.milliseconds of the
+	 *            service
+	 * @param toleranceInMilliSeconds
+	 *            bucket time of the service plus the clock skew between the
+	 *            hosts
+	 */
+	public StatisticModel(long windowInMilliSeconds, long toleranceInMilliSeconds) {
+		this.windowInMilliSeconds = windowInMilliSeconds;
+		this.toleranceInMilliSeconds = toleranceInMilliSeconds;
+	}
+
+	public void add(BigDecimal amount, long timestamp) {
+		aggregates.computeIfAbsent(timestamp, key -> new Aggregate()).add(amount);
+	}
+
+	/**
+	 * Drops the transactions which can not be counted any more, so the model
+	 * stays small during a soak test
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	public void expire(long now) {
+		aggregates.headMap(now - windowInMilliSeconds - toleranceInMilliSeconds).clear();
+	}
+
+	/**
+	 * Compares a statistic read from the service with the model
+	 *
+	 * @param statistic
+	 *            response body of GET /statistics
+	 * @param before
+	 *            epoch milliseconds before the request was sent
+	 * @param after
+	 *            epoch milliseconds after the response was received
+	 * @return mismatches, empty if the statistic matches
+	 */
+	public List<String> check(JsonNode statistic, long before, long after) {
+		long certainFrom = after - windowInMilliSeconds + toleranceInMilliSeconds;
+		long possibleFrom = before - windowInMilliSeconds - toleranceInMilliSeconds;
+		Aggregate certain = sum(aggregates.tailMap(certainFrom, false));
+		Aggregate uncertain = sum(aggregates.subMap(possibleFrom, false, certainFrom, true));
+
+		List<String> mismatches = new ArrayList<>();
+		long count = statistic.get("count").asLong();
+		BigDecimal sum = new BigDecimal(statistic.get("sum").asText());
+
+		if (uncertain.count == 0) {
+			expect(mismatches, "count", BigDecimal.valueOf(certain.count), BigDecimal.valueOf(count));
+			expect(mismatches, "sum", certain.getSum(), sum);
+			expect(mismatches, "avg", certain.getAvg(), new BigDecimal(statistic.get("avg").asText()));
+			expect(mismatches, "max", certain.getMax(), new BigDecimal(statistic.get("max").asText()));
+			expect(mismatches, "min", certain.getMin(), new BigDecimal(statistic.get("min").asText()));
+			return mismatches;
+		}
+
+		if (count < certain.count || count > certain.count + uncertain.count) {
+			mismatches.add(String.format("count: expected %d to %d, found %d", certain.count,
+					certain.count + uncertain.count, count));
+		}
+
+		BigDecimal lowest = round(certain.getSum().add(uncertain.negativeSum));
+		BigDecimal highest = round(certain.getSum().add(uncertain.positiveSum));
+		if (sum.compareTo(lowest) < 0 || sum.compareTo(highest) > 0) {
+			mismatches.add(String.format("sum: expected %s to %s, found %s", lowest, highest, sum));
+		}
+		return mismatches;
+	}
+
+	private static Aggregate sum(ConcurrentNavigableMap<Long, Aggregate> aggregates) {
+		Aggregate total = new Aggregate();
+		for (Aggregate aggregate : aggregates.values()) {
+			total.merge(aggregate);
+		}
+		return total;
+	}
+
+	private static void expect(List<String> mismatches, String field, BigDecimal expected, BigDecimal found) {
+		if (expected.compareTo(found) != 0) {
+			mismatches.add(String.format("%s: expected %s, found %s", field, expected, found));
+		}
+	}
+
+	private static BigDecimal round(BigDecimal value) {
+		return value.setScale(2, RoundingMode.HALF_UP);
+	}
+
+	/**
+	 * Transactions of a single millisecond
+	 */
+	private static class Aggregate {
+		private long count;
+		private BigDecimal positiveSum = BigDecimal.ZERO;
+		private BigDecimal negativeSum = BigDecimal.ZERO;
+		private BigDecimal max;
+		private BigDecimal min;
+
+		synchronized void add(BigDecimal amount) {
+			count++;
+			if (amount.signum() < 0) {
+				negativeSum = negativeSum.add(amount);
+			} else {
+				positiveSum = positiveSum.add(amount);
+			}
+			max = max == null || amount.compareTo(max) > 0 ? amount : max;
+			min = min == null || amount.compareTo(min) < 0 ? amount : min;
+		}
+
+		synchronized void merge(Aggregate other) {
+			synchronized (other) {
+				count += other.count;
+				positiveSum = positiveSum.add(other.positiveSum);
+				negativeSum = negativeSum.add(other.negativeSum);
+				if (other.count > 0) {
+					max = max == null || other.max.compareTo(max) > 0 ? other.max : max;
+					min = min == null || other.min.compareTo(min) < 0 ? other.min : min;
+				}
+			}
+		}
+
+		BigDecimal getSum() {
+			return round(positiveSum.add(negativeSum));
+		}
+
+		BigDecimal getAvg() {
+			return count == 0 ? round(BigDecimal.ZERO)
+					: positiveSum.add(negativeSum).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+		}
+
+		BigDecimal getMax() {
+			return round(max == null ? BigDecimal.ZERO : max);
+		}
+
+		BigDecimal getMin() {
+			return round(min == null ? BigDecimal.ZERO : min);
+		}
+	}
+}
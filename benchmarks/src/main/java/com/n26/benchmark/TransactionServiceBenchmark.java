@@ -0,0 +1,55 @@
+package com.n26.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.n26.model.Statistic;
+import com.n26.service.impl.TransactionServiceImpl;
+
+/**
+ * Throughput of {@link TransactionServiceImpl} for transactions within the
+ * newer half of the window, so that none of them is rejected as outdated
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionServiceBenchmark {
+
+	@Benchmark
+	public void saveTransaction(EngineState engine, AmountState amounts) {
+		engine.transactionService.saveTransaction(amounts.next(0, engine.windowMillis / 2));
+	}
+
+	@Benchmark
+	public Statistic getStatistic(EngineState engine) {
+		return engine.transactionService.getStatistic();
+	}
+
+	/**
+	 * Writers and a reader contending on the same window
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public void mixedSave(EngineState engine, AmountState amounts) {
+		engine.transactionService.saveTransaction(amounts.next(0, engine.windowMillis / 2));
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public Statistic mixedGetStatistic(EngineState engine) {
+		return engine.transactionService.getStatistic();
+	}
+}
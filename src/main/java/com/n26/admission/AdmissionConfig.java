@@ -0,0 +1,34 @@
+package com.n26.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.n26.admission.IngestAdmission.Shedding;
+
+/**
+ * Creates the {@link IngestAdmission}. At most
+ * ingest.admission.max.in.flight requests save transactions at the same time,
+ * without limit by default. Beyond that, ingest.admission.shedding either
+ * rejects the requests, asking the clients to retry after
+ * ingest.admission.retry.after.in.seconds, or samples one in
+ * ingest.admission.sample.rate of their transactions.
+ */
+@Configuration
+public class AdmissionConfig {
+
+	@Bean
+	public IngestAdmission ingestAdmission(@Value("${ingest.admission.max.in.flight:0}") int maxInFlight,
+			@Value("${ingest.admission.shedding:reject}") String shedding,
+			@Value("${ingest.admission.sample.rate:10}") int sampleRate,
+			@Value("${ingest.admission.retry.after.in.seconds:1}") int retryAfterInSeconds) {
+		switch (shedding) {
+		case "reject":
+			return new IngestAdmission(maxInFlight, Shedding.REJECT, sampleRate, retryAfterInSeconds);
+		case "sample":
+			return new IngestAdmission(maxInFlight, Shedding.SAMPLE, sampleRate, retryAfterInSeconds);
+		default:
+			throw new IllegalArgumentException("Unknown shedding: " + shedding);
+		}
+	}
+}
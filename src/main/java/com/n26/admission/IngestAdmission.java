@@ -0,0 +1,119 @@
+package com.n26.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of requests saving transactions at the same time, so that
+ * a spike of writes can not take every request thread and starve the reads of
+ * the statistic.
+ * <p>
+ * A request is admitted by incrementing a counter, and turned away by
+ * decrementing it again if the budget is exceeded, so a decision is one or two
+ * atomic additions and never waits. What happens to a request beyond the
+ * budget depends on the {@link Shedding}.
+ */
+public class IngestAdmission {
+
+	/**
+	 * Admission without a budget, every request is admitted
+	 */
+	public static final IngestAdmission UNLIMITED = new IngestAdmission(0, Shedding.REJECT, 1, 1);
+
+	/**
+	 * What is done with the requests beyond the budget
+	 */
+	public enum Shedding {
+		/**
+		 * Rejected with 503 Service Unavailable and a Retry-After header
+		 */
+		REJECT,
+
+		/**
+		 * One transaction in the sample rate is still saved, the others are
+		 * accepted without being counted
+		 */
+		SAMPLE
+	}
+
+	private final int maxInFlight;
+	private final Shedding shedding;
+	private final int sampleRate;
+	private final int retryAfterInSeconds;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong shed = new AtomicLong();
+
+	/**
+	 * @param maxInFlight
+	 *            most requests saving transactions at the same time, no limit
+	 *            if not positive
+	 * @param shedding
+	 *            what is done with the requests beyond the budget
+	 * @param sampleRate
+	 *            one in how many transactions beyond the budget is saved when
+	 *            sampling
+	 * @param retryAfterInSeconds
+	 *            seconds a rejected client is asked to wait
+	 */
+	public IngestAdmission(int maxInFlight, Shedding shedding, int sampleRate, int retryAfterInSeconds) {
+		if (sampleRate <= 0 || retryAfterInSeconds < 0) {
+			throw new IllegalArgumentException(
+					"Invalid sample rate " + sampleRate + " or retry after " + retryAfterInSeconds);
+		}
+
+		this.maxInFlight = maxInFlight;
+		this.shedding = shedding;
+		this.sampleRate = sampleRate;
+		this.retryAfterInSeconds = retryAfterInSeconds;
+	}
+
+	/**
+	 * Admits a request within the budget, which must be released with
+	 * {@link #release()} once its transactions are saved
+	 *
+	 * @return false if the budget is exceeded
+	 */
+	public boolean tryAcquire() {
+		if (maxInFlight <= 0) {
+			return true;
+		}
+		if (inFlight.incrementAndGet() <= maxInFlight) {
+			return true;
+		}
+
+		inFlight.decrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Releases a request admitted by {@link #tryAcquire()}
+	 */
+	public void release() {
+		if (maxInFlight > 0) {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return true if a transaction beyond the budget is to be saved, for one
+	 *         in the sample rate
+	 */
+	public boolean isSampled() {
+		return shedding == Shedding.SAMPLE && shed.getAndIncrement() % sampleRate == 0;
+	}
+
+	public Shedding getShedding() {
+		return shedding;
+	}
+
+	public int getRetryAfterInSeconds() {
+		return retryAfterInSeconds;
+	}
+
+	/**
+	 * @return number of requests saving transactions within the budget
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+}
@@ -0,0 +1,21 @@
+package com.n26.clock;
+
+import java.time.Clock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the {@link Clock} the engine reads the current time from: the UTC
+ * system clock, or a {@link SimulatedClock} when replay.file is set, which
+ * the replay advances with the timestamps of the recorded transactions.
+ */
+@Configuration
+public class ClockConfig {
+
+	@Bean
+	public Clock clock(@Value("${replay.file:}") String replayFile) {
+		return replayFile.isEmpty() ? Clock.systemUTC() : new SimulatedClock(0);
+	}
+}
@@ -0,0 +1,89 @@
+package com.n26.clock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock which only moves when it is advanced, so the engine can run on the
+ * time of recorded transactions rather than on the wall clock. Time never goes
+ * back: advancing to an earlier time leaves the clock where it is. The clock
+ * is in UTC, and its views in other zones share its time.
+ */
+public class SimulatedClock extends Clock {
+	private final AtomicLong millis;
+	private final ZoneId zone;
+
+	/**
+	 * @param startInMilliSeconds
+	 *            epoch milliseconds the clock starts at
+	 */
+	public SimulatedClock(long startInMilliSeconds) {
+		this(new AtomicLong(startInMilliSeconds), ZoneOffset.UTC);
+	}
+
+	private SimulatedClock(AtomicLong millis, ZoneId zone) {
+		this.millis = millis;
+		this.zone = zone;
+	}
+
+	/**
+	 * Moves the clock forward
+	 *
+	 * @param epochMilliSeconds
+	 *            new time, ignored if it is before the current time
+	 * @return current time of the clock
+	 */
+	public long advanceTo(long epochMilliSeconds) {
+		return millis.accumulateAndGet(epochMilliSeconds, Math::max);
+	}
+
+	@Override
+	public long millis() {
+		return millis.get();
+	}
+
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis.get());
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * @return view of this clock in the given zone, which moves with it
+	 */
+	@Override
+	public SimulatedClock withZone(ZoneId zone) {
+		return this.zone.equals(zone) ? this : new SimulatedClock(millis, zone);
+	}
+
+	/**
+	 * @return true if the other clock is this clock or one of its views, in
+	 *         the same zone
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof SimulatedClock)) {
+			return false;
+		}
+
+		SimulatedClock other = (SimulatedClock) obj;
+		return millis == other.millis && zone.equals(other.zone);
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(millis) ^ zone.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "SimulatedClock[" + instant() + "," + zone + "]";
+	}
+}
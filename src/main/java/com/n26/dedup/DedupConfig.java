@@ -0,0 +1,28 @@
+package com.n26.dedup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.n26.window.StatisticWindow;
+
+/**
+ * Creates the {@link TransactionIdFilter}. With dedup.enabled, the ids given
+ * by the clients are remembered over the longest window, split into
+ * dedup.partitions time slices, for at most dedup.capacity ids.
+ */
+@Configuration
+public class DedupConfig {
+
+	@Bean
+	public TransactionIdFilter transactionIdFilter(StatisticWindow statisticWindow,
+			@Value("${dedup.enabled:false}") boolean enabled, @Value("${dedup.partitions:4}") int partitions,
+			@Value("${dedup.capacity:1048576}") int capacity) {
+		if (!enabled) {
+			return TransactionIdFilter.NONE;
+		}
+
+		long[] windows = statisticWindow.getWindows();
+		return new TimePartitionedIdFilter(windows[windows.length - 1], partitions, capacity);
+	}
+}
@@ -0,0 +1,154 @@
+package com.n26.dedup;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import lombok.extern.java.Log;
+
+/**
+ * {@link TransactionIdFilter} keeping 64 bit fingerprints of the ids and
+ * timestamps in compact open addressing hash sets, one per time slice of the
+ * window.
+ * <p>
+ * The window is split into a number of partitions, and a transaction goes to
+ * the partition of the slice of its timestamp. The partitions form a ring one
+ * slot longer than the window, so a partition is dropped as a whole when the
+ * slot is taken by a newer slice, without walking its ids. A partition is a
+ * table of longs, at most half full, whose entries are claimed with a
+ * compare-and-set, so adding an id costs a hash and a few probes.
+ * <p>
+ * Memory is bounded: a partition holds at most the configured capacity
+ * divided by the number of partitions, in a table of 16 bytes per id at most,
+ * allocated with the first id of its slice. Ids beyond that are not
+ * remembered, so their transactions are always counted. Two different ids
+ * share a fingerprint with a probability of about the number of ids in the
+ * window over 2<sup>64</sup>.
+ */
+@Log
+public class TimePartitionedIdFilter implements TransactionIdFilter {
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long sliceInMilliSeconds;
+	private final int maxIdsPerPartition;
+	private final int tableSize;
+	private final AtomicReferenceArray<Partition> partitions;
+
+	/**
+	 * @param windowInMilliSeconds
+	 *            how long ids are remembered, the longest window
+	 * @param partitionCount
+	 *            number of time slices the window is split into
+	 * @param capacity
+	 *            most ids remembered within the window
+	 */
+	public TimePartitionedIdFilter(long windowInMilliSeconds, int partitionCount, int capacity) {
+		if (partitionCount <= 0 || capacity < partitionCount) {
+			throw new IllegalArgumentException(
+					"Invalid number of partitions " + partitionCount + " for a capacity of " + capacity);
+		}
+
+		this.sliceInMilliSeconds = (windowInMilliSeconds + partitionCount - 1) / partitionCount;
+		this.maxIdsPerPartition = (capacity + partitionCount - 1) / partitionCount;
+		this.tableSize = Integer.highestOneBit(maxIdsPerPartition - 1 | 1) << 2;
+		this.partitions = new AtomicReferenceArray<>(partitionCount + 1);
+	}
+
+	@Override
+	public boolean add(String id, long timestamp) {
+		if (id == null) {
+			return true;
+		}
+
+		long slice = Math.floorDiv(timestamp, sliceInMilliSeconds);
+		Partition partition = partition(slice);
+		return partition == null || partition.add(fingerprint(id, timestamp));
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < partitions.length(); i++) {
+			partitions.set(i, null);
+		}
+	}
+
+	/**
+	 * @return partition of the given slice, or null if the slot already holds
+	 *         a newer slice
+	 */
+	private Partition partition(long slice) {
+		int slot = (int) Math.floorMod(slice, (long) partitions.length());
+		while (true) {
+			Partition partition = partitions.get(slot);
+			if (partition != null && partition.slice >= slice) {
+				return partition.slice == slice ? partition : null;
+			}
+
+			Partition newer = new Partition(slice);
+			if (partitions.compareAndSet(slot, partition, newer)) {
+				return newer;
+			}
+		}
+	}
+
+	/**
+	 * FNV-1a hash of the characters of the id and the timestamp, spread with
+	 * the finalizer of MurmurHash3. Zero marks a free entry, so it is never
+	 * returned.
+	 */
+	static long fingerprint(String id, long timestamp) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < id.length(); i++) {
+			hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+		}
+		hash = (hash ^ timestamp) * FNV_PRIME;
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Open addressing hash set of the fingerprints of a time slice
+	 */
+	private final class Partition {
+		private final long slice;
+		private final AtomicLongArray fingerprints = new AtomicLongArray(tableSize);
+		private final AtomicInteger size = new AtomicInteger();
+
+		Partition(long slice) {
+			this.slice = slice;
+		}
+
+		/**
+		 * @return false if the fingerprint was already added
+		 */
+		boolean add(long fingerprint) {
+			int mask = tableSize - 1;
+			for (int i = (int) fingerprint & mask;; i = (i + 1) & mask) {
+				long current = fingerprints.get(i);
+				while (current == 0) {
+					if (size.get() >= maxIdsPerPartition) {
+						if (size.getAndIncrement() == maxIdsPerPartition) {
+							log.warning("Ids of the slice starting at " + slice * sliceInMilliSeconds
+									+ " are no longer remembered, more than " + maxIdsPerPartition);
+						}
+						return true;
+					}
+					if (fingerprints.compareAndSet(i, 0, fingerprint)) {
+						size.incrementAndGet();
+						return true;
+					}
+					current = fingerprints.get(i);
+				}
+				if (current == fingerprint) {
+					return false;
+				}
+			}
+		}
+	}
+}
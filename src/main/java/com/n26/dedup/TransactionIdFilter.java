@@ -0,0 +1,42 @@
+package com.n26.dedup;
+
+/**
+ * Remembers the ids given by the clients to the transactions of the window,
+ * so that a transaction posted again, for instance on a retry, is only counted
+ * once.
+ */
+public interface TransactionIdFilter {
+
+	/**
+	 * Filter which remembers nothing, every transaction is counted
+	 */
+	TransactionIdFilter NONE = new TransactionIdFilter() {
+		@Override
+		public boolean add(String id, long timestamp) {
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			// Nothing to clear
+		}
+	};
+
+	/**
+	 * Remembers the id of a transaction of the window. A retry posts the same
+	 * transaction again, so the id is remembered together with the timestamp.
+	 *
+	 * @param id
+	 *            id given by the client, or null
+	 * @param timestamp
+	 *            epoch milliseconds of the transaction, within the window
+	 * @return false if a transaction with the same id and timestamp was already
+	 *         added, true otherwise
+	 */
+	boolean add(String id, long timestamp);
+
+	/**
+	 * Forgets every id
+	 */
+	void clear();
+}
@@ -1,6 +1,8 @@
 package com.n26.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -24,15 +26,29 @@ public class CustomExceptionHandler {
 		log.severe(ex.getMessage());
 	}
 
+	@ExceptionHandler(ShedTransactionException.class)
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	public void handleShedTransactionException(ShedTransactionException ex) {
+		log.fine(ex::getMessage);
+	}
+
+	@ExceptionHandler(IngestOverloadedException.class)
+	public ResponseEntity<Void> handleIngestOverloadedException(IngestOverloadedException ex) {
+		log.fine(ex::getMessage);
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterInSeconds())).build();
+	}
+
 	@ExceptionHandler({ IllegalArgumentException.class, InvalidFormatException.class })
 	@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
 	public void handleUnprocessableEntityErrors(Exception ex) {
 		log.severe(ex.getMessage());
 	}
 
-	@ExceptionHandler({ MismatchedInputException.class })
+	@ExceptionHandler({ MismatchedInputException.class, MalformedTransactionBatchException.class,
+			UnknownWindowException.class, InvalidHistoryRangeException.class })
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
-	public void handleMismatchedInputException(MismatchedInputException ex) {
+	public void handleBadRequestErrors(Exception ex) {
 		log.severe(ex.getMessage());
 	}
 }
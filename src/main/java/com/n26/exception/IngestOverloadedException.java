@@ -0,0 +1,28 @@
+package com.n26.exception;
+
+/**
+ * Custom Exception thrown when a request saving transactions is beyond the
+ * budget of the ingest and rejected. It is thrown when the service is
+ * overloaded, so it carries no stack trace.
+ * 
+ */
+public class IngestOverloadedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int retryAfterInSeconds;
+
+	public IngestOverloadedException(int retryAfterInSeconds) {
+		super("Ingest overloaded", null, false, false);
+		this.retryAfterInSeconds = retryAfterInSeconds;
+	}
+
+	@Override
+	public String getMessage() {
+		return super.getMessage() + ", retry after " + retryAfterInSeconds + " seconds";
+	}
+
+	public int getRetryAfterInSeconds() {
+		return retryAfterInSeconds;
+	}
+}
@@ -0,0 +1,15 @@
+package com.n26.exception;
+
+/**
+ * Custom Exception thrown when the history of the statistic is requested for
+ * a range or resolution that cannot be parsed or is not configured.
+ * 
+ */
+public class InvalidHistoryRangeException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidHistoryRangeException(String message) {
+		super("Invalid statistic history range: " + message);
+	}
+}
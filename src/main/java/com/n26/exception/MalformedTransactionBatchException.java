@@ -0,0 +1,15 @@
+package com.n26.exception;
+
+/**
+ * Custom Exception thrown when the body of a transaction batch is not valid
+ * JSON.
+ * 
+ */
+public class MalformedTransactionBatchException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public MalformedTransactionBatchException(Throwable cause) {
+		super("Malformed transaction batch: " + cause.getMessage(), cause);
+	}
+}
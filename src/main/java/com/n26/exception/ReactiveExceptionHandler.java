@@ -0,0 +1,39 @@
+package com.n26.exception;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+import lombok.extern.java.Log;
+
+/**
+ * Exception handler of the reactive stack, which wraps JSON errors into
+ * {@link ServerWebInputException}s. Maps them to the same status codes as
+ * {@link CustomExceptionHandler} does on the servlet stack.
+ * 
+ */
+@Log
+@Profile("reactive")
+@ControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReactiveExceptionHandler {
+
+	@ExceptionHandler(ServerWebInputException.class)
+	public ResponseEntity<Void> handleServerWebInputException(ServerWebInputException ex) {
+		log.severe(ex.getMessage());
+
+		for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof InvalidFormatException) {
+				return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+			}
+		}
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+	}
+}
@@ -0,0 +1,17 @@
+package com.n26.exception;
+
+/**
+ * Custom Exception thrown when a transaction beyond the budget of the ingest
+ * is accepted but left out of the sample that is saved. It is thrown when the
+ * service is overloaded, so it carries neither the transaction nor a stack
+ * trace.
+ * 
+ */
+public class ShedTransactionException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ShedTransactionException() {
+		super("Transaction not sampled", null, false, false);
+	}
+}
@@ -0,0 +1,15 @@
+package com.n26.exception;
+
+/**
+ * Custom Exception thrown when a statistic is requested for a window that is
+ * not configured or cannot be parsed.
+ * 
+ */
+public class UnknownWindowException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UnknownWindowException(String window) {
+		super("Unknown statistic window: " + window);
+	}
+}
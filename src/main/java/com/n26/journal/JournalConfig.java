@@ -0,0 +1,50 @@
+package com.n26.journal;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.n26.store.TransactionStore;
+import com.n26.window.StatisticWindow;
+
+import lombok.extern.java.Log;
+
+/**
+ * Creates the {@link TransactionJournal}. With journal.enabled, accepted
+ * transactions are journaled into segments of journal.segment.size.in.bytes
+ * in journal.directory, which are forced to the disk every
+ * journal.flush.in.milliseconds. The journaled transactions within the
+ * longest window are replayed into the {@link StatisticWindow} and the
+ * {@link TransactionStore} before the first request is served.
+ */
+@Log
+@Configuration
+public class JournalConfig {
+
+	@Bean
+	public TransactionJournal transactionJournal(StatisticWindow statisticWindow, TransactionStore transactionStore,
+			@Value("${journal.enabled:false}") boolean enabled,
+			@Value("${journal.directory:journal}") String directory,
+			@Value("${journal.segment.size.in.bytes:16777216}") int segmentSize,
+			@Value("${journal.flush.in.milliseconds:10}") long flushInMilliSeconds, Clock clock) throws IOException {
+		if (!enabled) {
+			return TransactionJournal.NONE;
+		}
+
+		long[] windows = statisticWindow.getWindows();
+		MappedTransactionJournal journal = new MappedTransactionJournal(Paths.get(directory), segmentSize,
+				windows[windows.length - 1], flushInMilliSeconds);
+
+		long now = clock.millis();
+		long replayed = journal.replay(now, (amount, timestamp) -> {
+			statisticWindow.add(amount, timestamp, now);
+			transactionStore.append(amount, timestamp, now);
+		});
+		log.info("Transactions replayed from the journal: " + replayed);
+		return journal;
+	}
+}
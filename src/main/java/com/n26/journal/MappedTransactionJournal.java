@@ -0,0 +1,435 @@
+package com.n26.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+import lombok.extern.java.Log;
+
+/**
+ * {@link TransactionJournal} writing into memory-mapped segment files.
+ * <p>
+ * A transaction is a record of one or more slots of {@value #SLOT_SIZE}
+ * bytes. Writers reserve the slots of the current segment with a single
+ * atomic add and copy the record into the mapped memory, header last, so no
+ * writer waits for another one nor for the disk. Records of a crashed process
+ * are still in the page cache. A background thread forces the segments to the
+ * disk every flush interval, which commits the records of all writers of
+ * that interval at once.
+ * <p>
+ * A new segment is started when the current one is full or older than the
+ * retention, and a segment is deleted once all its transactions are older
+ * than the retention. On startup {@link #replay(long, Replay)} reads back the
+ * transactions within the retention. Records which were not completely
+ * written are skipped.
+ */
+@Log
+public class MappedTransactionJournal implements TransactionJournal, AutoCloseable {
+	static final int SLOT_SIZE = 32;
+
+	private static final int MAGIC = 0x4E32;
+	private static final int MAX_EXTRA_SLOTS = 0xFF;
+	private static final long CHECK_SEED = 0x9E3779B97F4A7C15L;
+	private static final long CHECK_MULTIPLIER = 0xBF58476D1CE4E5B9L;
+
+	/**
+	 * Segments are deleted this much later than the retention, as writers may
+	 * still complete a record in a segment shortly after it was rolled. Expired
+	 * segments are looked for at the same interval.
+	 */
+	private static final long DELETION_DELAY_IN_MILLISECONDS = 1000;
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final long retentionInMilliSeconds;
+	private final ScheduledExecutorService flusher;
+
+	private volatile Segment current;
+
+	/**
+	 * Guards rolling the segments. It is not the monitor, which would pin the
+	 * carrier of a virtual thread waiting while a segment is mapped.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Segments which may have records not forced to the disk yet, guarded by
+	 * the lock
+	 */
+	private final List<Segment> unforced = new ArrayList<>();
+
+	/**
+	 * Next time expired segments are deleted, only used by the flusher
+	 */
+	private long nextDeletionAt;
+
+	/**
+	 * @param directory
+	 *            directory of the segment files, created if missing
+	 * @param segmentSize
+	 *            size of a segment file in bytes
+	 * @param retentionInMilliSeconds
+	 *            how long transactions are kept
+	 * @param flushInMilliSeconds
+	 *            interval between forcing the segments to the disk
+	 * @throws IOException
+	 *             if the first segment can not be created
+	 */
+	public MappedTransactionJournal(Path directory, int segmentSize, long retentionInMilliSeconds,
+			long flushInMilliSeconds) throws IOException {
+		if (segmentSize < (MAX_EXTRA_SLOTS + 1) * SLOT_SIZE) {
+			throw new IllegalArgumentException("Journal segments must have at least "
+					+ (MAX_EXTRA_SLOTS + 1) * SLOT_SIZE + " bytes: " + segmentSize);
+		}
+
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize - segmentSize % SLOT_SIZE;
+		this.retentionInMilliSeconds = retentionInMilliSeconds;
+		List<Path> segments = listSegments();
+		long startedAt = System.currentTimeMillis();
+		if (!segments.isEmpty()) {
+			// A previous journal may have rolled ahead of the clock
+			startedAt = Math.max(startedAt, startedAt(segments.get(segments.size() - 1)) + 1);
+		}
+		this.current = openSegment(startedAt);
+		unforced.add(current);
+
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "journal-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, flushInMilliSeconds, flushInMilliSeconds,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void append(BigDecimal amount, long timestamp) {
+		BigInteger unscaled = amount.unscaledValue();
+		byte[] bytes = unscaled.bitLength() < Long.SIZE ? null : unscaled.toByteArray();
+		int extraSlots = bytes == null ? 0 : (bytes.length + SLOT_SIZE - 1) / SLOT_SIZE;
+		if (extraSlots > MAX_EXTRA_SLOTS) {
+			log.warning("Amount too large to be journaled: " + amount);
+			return;
+		}
+
+		int size = (extraSlots + 1) * SLOT_SIZE;
+		Segment segment;
+		int position;
+		while ((position = (segment = current).reserve(size)) < 0) {
+			roll(segment);
+		}
+
+		long value = bytes == null ? unscaled.longValue() : bytes.length;
+		if (bytes != null) {
+			for (int i = 0; i < bytes.length; i++) {
+				segment.buffer.put(position + SLOT_SIZE + i, bytes[i]);
+			}
+		}
+
+		int header = MAGIC << 16 | extraSlots;
+		segment.buffer.putInt(position + 4, amount.scale());
+		segment.buffer.putLong(position + 8, timestamp);
+		segment.buffer.putLong(position + 16, value);
+		segment.buffer.putLong(position + 24, check(header, amount.scale(), timestamp, value));
+		segment.buffer.putInt(position, header);
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			rollLocked();
+			unforced.retainAll(Collections.singleton(current));
+			for (Path path : listSegments()) {
+				if (!path.equals(current.path)) {
+					delete(path);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads back the transactions of the previous segments which are within
+	 * the retention, oldest segment first
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 * @param replay
+	 *            receives the transactions
+	 * @return number of replayed transactions
+	 * @throws IOException
+	 *             if a segment can not be read
+	 */
+	public long replay(long now, Replay replay) throws IOException {
+		long replayed = 0;
+		for (Path path : listSegments()) {
+			if (!path.equals(current.path)) {
+				replayed += replay(path, now - retentionInMilliSeconds, now, replay);
+			}
+		}
+		return replayed;
+	}
+
+	/**
+	 * Forces the segments to the disk and stops the flusher
+	 */
+	@Override
+	public void close() {
+		flusher.shutdown();
+		try {
+			flusher.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		forceSegments();
+	}
+
+	/**
+	 * Runs every flush interval
+	 */
+	private void flush() {
+		try {
+			forceSegments();
+
+			long now = System.currentTimeMillis();
+			Segment segment = current;
+			if (now - segment.startedAt >= retentionInMilliSeconds) {
+				roll(segment);
+			}
+			if (now >= nextDeletionAt) {
+				deleteExpiredSegments(now);
+				nextDeletionAt = now + DELETION_DELAY_IN_MILLISECONDS;
+			}
+		} catch (RuntimeException ex) {
+			log.log(Level.WARNING, "Journal flush failed", ex);
+		}
+	}
+
+	/**
+	 * Forces the segments with new records, and keeps forcing a rolled segment
+	 * until it has no new records
+	 */
+	private void forceSegments() {
+		List<Segment> segments;
+		lock.lock();
+		try {
+			segments = new ArrayList<>(unforced);
+		} finally {
+			lock.unlock();
+		}
+
+		for (Segment segment : segments) {
+			if (!segment.force() && segment != current) {
+				lock.lock();
+				try {
+					unforced.remove(segment);
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	private void roll(Segment full) {
+		lock.lock();
+		try {
+			if (current == full) {
+				rollLocked();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void rollLocked() {
+		current = openSegment(Math.max(System.currentTimeMillis(), current.startedAt + 1));
+		unforced.add(current);
+	}
+
+	/**
+	 * Deletes the segments whose successor was started more than the retention
+	 * ago, as all their transactions are older
+	 */
+	private void deleteExpiredSegments(long now) {
+		List<Path> segments = listSegments();
+		for (int i = 0; i < segments.size() - 1; i++) {
+			long successorStartedAt = startedAt(segments.get(i + 1));
+			if (now - successorStartedAt > retentionInMilliSeconds + DELETION_DELAY_IN_MILLISECONDS) {
+				delete(segments.get(i));
+			}
+		}
+	}
+
+	private long replay(Path path, long from, long to, Replay replay) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		long replayed = 0;
+		int capacity = buffer.capacity() - buffer.capacity() % SLOT_SIZE;
+		for (int position = 0; position < capacity; position += SLOT_SIZE) {
+			int header = buffer.getInt(position);
+			if (header >>> 16 != MAGIC) {
+				continue;
+			}
+
+			int scale = buffer.getInt(position + 4);
+			long timestamp = buffer.getLong(position + 8);
+			long value = buffer.getLong(position + 16);
+			int extraSlots = header & MAX_EXTRA_SLOTS;
+			if (buffer.getLong(position + 24) != check(header, scale, timestamp, value)
+					|| position + (extraSlots + 1) * SLOT_SIZE > capacity
+					|| extraSlots > 0 && (value <= 0 || value > extraSlots * SLOT_SIZE)) {
+				continue;
+			}
+
+			BigDecimal amount;
+			if (extraSlots == 0) {
+				amount = BigDecimal.valueOf(value, scale);
+			} else {
+				byte[] bytes = new byte[(int) value];
+				for (int i = 0; i < bytes.length; i++) {
+					bytes[i] = buffer.get(position + SLOT_SIZE + i);
+				}
+				amount = new BigDecimal(new BigInteger(bytes), scale);
+				position += extraSlots * SLOT_SIZE;
+			}
+
+			if (timestamp > from && timestamp <= to) {
+				replay.accept(amount, timestamp);
+				replayed++;
+			}
+		}
+		return replayed;
+	}
+
+	private Segment openSegment(long startedAt) {
+		Path path = directory.resolve(SEGMENT_PREFIX + startedAt + SEGMENT_SUFFIX);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			return new Segment(path, startedAt, channel.map(MapMode.READ_WRITE, 0, segmentSize));
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Segment files in the order they were started
+	 */
+	private List<Path> listSegments() {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path path : paths) {
+				segments.add(path);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+
+		Collections.sort(segments, (a, b) -> Long.compare(startedAt(a), startedAt(b)));
+		return segments;
+	}
+
+	private static long startedAt(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static void delete(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException ex) {
+			log.log(Level.WARNING, "Journal segment could not be deleted: " + path, ex);
+		}
+	}
+
+	private static long check(int header, int scale, long timestamp, long value) {
+		long check = CHECK_SEED;
+		check = (check ^ header) * CHECK_MULTIPLIER;
+		check = (check ^ scale) * CHECK_MULTIPLIER;
+		check = (check ^ timestamp) * CHECK_MULTIPLIER;
+		check = (check ^ value) * CHECK_MULTIPLIER;
+		return check ^ check >>> 31;
+	}
+
+	/**
+	 * Receives the replayed transactions
+	 */
+	@FunctionalInterface
+	public interface Replay {
+		void accept(BigDecimal amount, long timestamp);
+	}
+
+	/**
+	 * Mapped segment file
+	 */
+	private static final class Segment {
+		private final Path path;
+		private final long startedAt;
+		private final MappedByteBuffer buffer;
+		private final AtomicInteger position = new AtomicInteger();
+
+		/**
+		 * Reserved bytes when last forced, and whether they had changed, only
+		 * used by the flusher and once it has stopped by {@link #close()}
+		 */
+		private int forcedPosition;
+		private boolean changed;
+
+		private Segment(Path path, long startedAt, MappedByteBuffer buffer) {
+			this.path = path;
+			this.startedAt = startedAt;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * @return position of the reserved bytes, or -1 if the segment is full
+		 */
+		private int reserve(int size) {
+			int reserved = position.getAndAdd(size);
+			return reserved <= buffer.capacity() - size ? reserved : -1;
+		}
+
+		/**
+		 * Forces the segment if bytes were reserved since the last time, and
+		 * once more afterwards, as reserved records are written shortly after
+		 *
+		 * @return false if there was nothing to force
+		 */
+		private boolean force() {
+			int reserved = position.get();
+			if (reserved == forcedPosition && !changed) {
+				return false;
+			}
+
+			changed = reserved != forcedPosition;
+			forcedPosition = reserved;
+			buffer.force();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.n26.journal;
+
+import java.math.BigDecimal;
+
+/**
+ * Append-only record of the accepted transactions, which lets the statistic
+ * survive a restart
+ */
+public interface TransactionJournal {
+	/**
+	 * Journal which records nothing
+	 */
+	TransactionJournal NONE = new TransactionJournal() {
+		@Override
+		public void append(BigDecimal amount, long timestamp) {
+		}
+
+		@Override
+		public void clear() {
+		}
+	};
+
+	/**
+	 * Records an accepted transaction. Returns without waiting for the record
+	 * to reach the disk.
+	 *
+	 * @param amount
+	 *            amount of the transaction
+	 * @param timestamp
+	 *            epoch milliseconds of the transaction
+	 */
+	void append(BigDecimal amount, long timestamp);
+
+	/**
+	 * Discards every recorded transaction.
+	 */
+	void clear();
+}
@@ -0,0 +1,86 @@
+package com.n26.metrics;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.n26.window.StatisticWindow;
+import com.n26.window.WindowMetrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Binds the {@link WindowMetrics} of the {@link StatisticWindow} to the meter
+ * registry. Meters read the counters of the window only when they are
+ * scraped, thus nothing is recorded through Micrometer on the hot path.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class StatisticWindowMetrics implements MeterBinder {
+
+	private final StatisticWindow statisticWindow;
+	private final Clock clock;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		WindowMetrics metrics = statisticWindow.getMetrics();
+
+		FunctionTimer.builder("statistic.window.lock.wait", metrics, WindowMetrics::getContendedWrites,
+				WindowMetrics::getWriteWaitNanos, TimeUnit.NANOSECONDS)
+				.description("Time writers waited for the lock of a bucket ring").register(registry);
+		FunctionTimer.builder("statistic.window.lock.hold", metrics, WindowMetrics::getSampledWrites,
+				WindowMetrics::getWriteHoldNanos, TimeUnit.NANOSECONDS)
+				.description("Time the lock of a bucket ring was held, sampled for one in 64 writes")
+				.register(registry);
+
+		counter(registry, "statistic.window.buckets.expired", "Non-empty buckets which left the window, each "
+				+ "updating the max and min of the window", metrics, WindowMetrics::getExpiredBuckets);
+		counter(registry, "statistic.window.amounts.expired",
+				"Amounts ignored because their bucket had already expired", metrics,
+				WindowMetrics::getExpiredAmounts);
+
+		readCounter(registry, "snapshot", metrics, WindowMetrics::getSnapshotReads);
+		readCounter(registry, "optimistic", metrics, WindowMetrics::getOptimisticReads);
+		readCounter(registry, "locked", metrics, WindowMetrics::getLockedReads);
+
+		for (long window : statisticWindow.getWindows()) {
+			Gauge.builder("statistic.window.transactions", statisticWindow, countOf(window))
+					.description("Transactions currently in the window").tag("window", format(window))
+					.register(registry);
+		}
+	}
+
+	private void counter(MeterRegistry registry, String name, String description, WindowMetrics metrics,
+			ToLongFunction<WindowMetrics> count) {
+		FunctionCounter.builder(name, metrics, value -> count.applyAsLong(value)).description(description)
+				.register(registry);
+	}
+
+	private void readCounter(MeterRegistry registry, String path, WindowMetrics metrics,
+			ToLongFunction<WindowMetrics> count) {
+		FunctionCounter.builder("statistic.window.reads", metrics, value -> count.applyAsLong(value))
+				.description("Statistic reads, by the way they were served").tag("path", path).register(registry);
+	}
+
+	private ToDoubleFunction<StatisticWindow> countOf(long window) {
+		return value -> value.getStatistic(window, clock.millis()).getCount();
+	}
+
+	private String format(long window) {
+		if (window % 60000 == 0) {
+			return window / 60000 + "m";
+		} else if (window % 1000 == 0) {
+			return window / 1000 + "s";
+		}
+		return window + "ms";
+	}
+}
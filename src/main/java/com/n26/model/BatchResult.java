@@ -0,0 +1,42 @@
+package com.n26.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Model object for the outcome of saving a batch of transactions.
+ */
+@ToString
+@Getter
+public class BatchResult {
+	private long accepted;
+	private long outdated;
+	private long futureDated;
+	private long duplicate;
+	private long shed;
+	private long invalid;
+
+	public void addAccepted() {
+		accepted++;
+	}
+
+	public void addOutdated() {
+		outdated++;
+	}
+
+	public void addFutureDated() {
+		futureDated++;
+	}
+
+	public void addDuplicate() {
+		duplicate++;
+	}
+
+	public void addShed() {
+		shed++;
+	}
+
+	public void addInvalid(long count) {
+		invalid += count;
+	}
+}
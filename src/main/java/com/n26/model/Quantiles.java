@@ -0,0 +1,38 @@
+package com.n26.model;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.n26.util.CustomBigDecimalSerializer;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable model object for the median, 90th and 99th percentile of the
+ * amounts of transactions provisioned in the system.
+ */
+@ToString
+@Getter
+public class Quantiles {
+	@JsonSerialize(using = CustomBigDecimalSerializer.class)
+	private final BigDecimal p50;
+
+	@JsonSerialize(using = CustomBigDecimalSerializer.class)
+	private final BigDecimal p90;
+
+	@JsonSerialize(using = CustomBigDecimalSerializer.class)
+	private final BigDecimal p99;
+	private final long count;
+
+	public Quantiles() {
+		this(new BigDecimal(0), new BigDecimal(0), new BigDecimal(0), 0);
+	}
+
+	public Quantiles(BigDecimal p50, BigDecimal p90, BigDecimal p99, long count) {
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.count = count;
+	}
+}
@@ -2,96 +2,103 @@ package com.n26.model;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Instant;
-import java.util.Comparator;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.n26.util.CustomBigDecimalSerializer;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
-import net.jodah.expiringmap.ExpiringMap;
 
 /**
- * Model object for statistics of transactions provisioned in the system.
+ * Immutable model object for statistics of transactions provisioned in the
+ * system. Variance and standard deviation of the amounts are only known for
+ * the statistics of the window and of its history, and are left out of the
+ * JSON otherwise.
  */
 @ToString
+@EqualsAndHashCode
 @Getter
 public class Statistic {
 	@JsonSerialize(using = CustomBigDecimalSerializer.class)
-	private BigDecimal sum;
+	private final BigDecimal sum;
 
 	@JsonSerialize(using = CustomBigDecimalSerializer.class)
-	private BigDecimal avg;
+	private final BigDecimal avg;
 
 	@JsonSerialize(using = CustomBigDecimalSerializer.class)
-	private BigDecimal max;
+	private final BigDecimal max;
 
 	@JsonSerialize(using = CustomBigDecimalSerializer.class)
-	private BigDecimal min;
-	private long count;
+	private final BigDecimal min;
+	private final long count;
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	@JsonSerialize(using = CustomBigDecimalSerializer.class)
+	private final BigDecimal variance;
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	@JsonSerialize(using = CustomBigDecimalSerializer.class)
+	private final BigDecimal stddev;
 
 	public Statistic() {
 		sum = new BigDecimal(0);
 		avg = new BigDecimal(0);
 		max = new BigDecimal(0);
 		min = new BigDecimal(0);
+		count = 0;
+		variance = null;
+		stddev = null;
 	}
 
 	/**
-	 * Updates Statistic object with the values of the given transaction
-	 * 
-	 * @param {@link Transaction}
+	 * Creates a Statistic from already aggregated values of at least one
+	 * transaction
+	 *
+	 * @param sum
+	 * @param max
+	 * @param min
+	 * @param count
 	 */
-	public void addTransaction(Transaction transaction) {
-		if (count == 0) {
-			max = transaction.getAmount();
-			min = transaction.getAmount();
-		}
-		count++;
-		sum = this.sum.add(transaction.getAmount());
-		max = this.max.max(transaction.getAmount());
-		min = this.min.min(transaction.getAmount());
-		avg = this.sum.divide(new BigDecimal(this.count), 2, RoundingMode.HALF_UP);
+	public Statistic(BigDecimal sum, BigDecimal max, BigDecimal min, long count) {
+		this.sum = sum;
+		this.max = max;
+		this.min = min;
+		this.count = count;
+		this.avg = sum.divide(new BigDecimal(count), 2, RoundingMode.HALF_UP);
+		this.variance = null;
+		this.stddev = null;
+	}
+
+	private Statistic(Statistic statistic, BigDecimal variance, BigDecimal stddev) {
+		this.sum = statistic.sum;
+		this.avg = statistic.avg;
+		this.max = statistic.max;
+		this.min = statistic.min;
+		this.count = statistic.count;
+		this.variance = variance;
+		this.stddev = stddev;
 	}
 
 	/**
-	 * Updates Statistic object by extracting the values of the removed
-	 * transaction. Remaining transaction cache is needed in case of calculating
-	 * new max and min values
-	 * 
-	 * @param {@link Transaction}
-	 * @param transaction cache after removal of the transaction
+	 * @param variance
+	 *            population variance of the amounts
+	 * @return copy of this statistic with the given variance and its square
+	 *         root as standard deviation, or without them if the variance
+	 *         overflowed a double
 	 */
-	public void substractTransaction(Transaction transaction, ExpiringMap<Transaction, Instant> cache) {
-		count--;
-		if (count == 0) {
-			sum = new BigDecimal(0);
-			avg = new BigDecimal(0);
-			max = new BigDecimal(0);
-			min = new BigDecimal(0);
-
-			return;
+	public Statistic withVariance(double variance) {
+		if (Double.isNaN(variance) || Double.isInfinite(variance)) {
+			return withoutVariance();
 		}
+		return new Statistic(this, BigDecimal.valueOf(variance), BigDecimal.valueOf(Math.sqrt(variance)));
+	}
 
-		sum = sum.subtract(transaction.getAmount());
-		avg = sum.divide(new BigDecimal(this.count), 2, RoundingMode.HALF_UP);
-
-		if (transaction.getAmount().equals(max) && transaction.getAmount().equals(min)) {
-			// No need to update max or min. As there is at least another
-			// transaction with the same amount in the cache
-			return;
-		} else if (transaction.getAmount().equals(max)) {
-
-			// Get the next maximum amount from transaction cache
-			this.max = cache.keySet().parallelStream().max(Comparator.comparing(Transaction::getAmount)).get()
-					.getAmount();
-			
-		} else if (transaction.getAmount().equals(min)) {
-
-			// Get the next minimum amount from transaction cache
-			this.min = cache.keySet().parallelStream().min(Comparator.comparing(Transaction::getAmount)).get()
-					.getAmount();
-		}
+	/**
+	 * @return this statistic without variance and standard deviation
+	 */
+	public Statistic withoutVariance() {
+		return variance == null ? this : new Statistic(this, null, null);
 	}
 }
@@ -0,0 +1,32 @@
+package com.n26.model;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable model object for the statistic of the transactions of one time
+ * slice of the history.
+ */
+@ToString
+@Getter
+public class StatisticSlice {
+	private final Instant start;
+
+	@JsonUnwrapped
+	private final Statistic statistic;
+
+	/**
+	 * @param start
+	 *            start of the time slice
+	 * @param statistic
+	 *            {@link Statistic} of the transactions of the time slice
+	 */
+	public StatisticSlice(Instant start, Statistic statistic) {
+		this.start = start;
+		this.statistic = statistic;
+	}
+}
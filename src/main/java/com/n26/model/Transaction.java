@@ -19,4 +19,10 @@ public class Transaction {
 
 	@NotNull
 	private Instant timestamp;
+
+	/**
+	 * Optional id given by the client. A transaction posted again with the
+	 * same id and timestamp is counted once.
+	 */
+	private String id;
 }
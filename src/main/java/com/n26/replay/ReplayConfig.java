@@ -0,0 +1,67 @@
+package com.n26.replay;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.clock.ClockConfig;
+import com.n26.clock.SimulatedClock;
+import com.n26.model.BatchResult;
+import com.n26.service.TransactionService;
+import com.n26.util.TransactionStreamReader;
+
+import lombok.extern.java.Log;
+
+/**
+ * Replays the transactions recorded in replay.file once the application has
+ * started, with a {@link TransactionReplayer}. The file holds a JSON array or
+ * newline delimited JSON objects, like the body of a batch. The engine then
+ * runs on the simulated time of the {@link ClockConfig}, and the statistic is
+ * written every replay.interval (1s) of that time to replay.output
+ * (replay.csv). The replayed transactions must not be journaled.
+ */
+@Log
+@Configuration
+@ConditionalOnProperty(name = "replay.file")
+public class ReplayConfig {
+
+	@Bean
+	public ApplicationRunner transactionReplay(TransactionService transactionService, Clock clock,
+			ObjectMapper objectMapper, @Value("${replay.file}") String file,
+			@Value("${replay.output:replay.csv}") String output, @Value("${replay.interval:1s}") String interval,
+			@Value("${journal.enabled:false}") boolean journaled) {
+		if (journaled) {
+			throw new IllegalArgumentException("A replay runs on simulated time, unlike the journal");
+		}
+		if (!(clock instanceof SimulatedClock)) {
+			throw new IllegalArgumentException("A replay needs a simulated clock, replay.file is empty");
+		}
+
+		TransactionReplayer replayer = new TransactionReplayer(transactionService, (SimulatedClock) clock,
+				DurationStyle.detectAndParse(interval).toMillis());
+		return arguments -> {
+			long start = System.nanoTime();
+			try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(Paths.get(file)));
+					Writer series = Files.newBufferedWriter(Paths.get(output))) {
+				TransactionStreamReader reader = new TransactionStreamReader(objectMapper, inputStream);
+				BatchResult result = replayer.replay(reader, series);
+				result.addInvalid(reader.getInvalidCount());
+
+				log.info("Replayed " + file + " into " + output + " in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms: " + result);
+			}
+		};
+	}
+}
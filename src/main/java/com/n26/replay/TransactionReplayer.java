@@ -0,0 +1,109 @@
+package com.n26.replay;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Iterator;
+
+import com.n26.clock.SimulatedClock;
+import com.n26.exception.OutDatedTransactionException;
+import com.n26.model.BatchResult;
+import com.n26.model.Statistic;
+import com.n26.model.Transaction;
+import com.n26.service.TransactionService;
+
+/**
+ * Replays recorded transactions into the {@link TransactionService} on
+ * simulated time, as fast as they can be saved.
+ * <p>
+ * The {@link SimulatedClock} is advanced to the timestamp of each transaction
+ * before it is saved, so transactions are expected in the order they were
+ * recorded. A transaction which is older than the window by then is counted as
+ * outdated, like a late post. Each time the clock passes a multiple of the
+ * interval, the statistic of the window at that time is written as a row of
+ * the series, in CSV: time, sum, avg, max, min, count, variance and standard
+ * deviation.
+ */
+public class TransactionReplayer {
+	static final String HEADER = "time,sum,avg,max,min,count,variance,stddev";
+
+	private final TransactionService transactionService;
+	private final SimulatedClock clock;
+	private final long intervalInMilliSeconds;
+
+	/**
+	 * @param transactionService
+	 *            service reading the time from the clock
+	 * @param clock
+	 *            clock advanced by the replay
+	 * @param intervalInMilliSeconds
+	 *            simulated time between two rows of the series
+	 */
+	public TransactionReplayer(TransactionService transactionService, SimulatedClock clock,
+			long intervalInMilliSeconds) {
+		if (intervalInMilliSeconds <= 0) {
+			throw new IllegalArgumentException("Invalid replay interval: " + intervalInMilliSeconds);
+		}
+
+		this.transactionService = transactionService;
+		this.clock = clock;
+		this.intervalInMilliSeconds = intervalInMilliSeconds;
+	}
+
+	/**
+	 * Saves the transactions and writes the statistic series, up to the first
+	 * multiple of the interval after the last transaction
+	 *
+	 * @param transactions
+	 *            recorded transactions, in the order of their timestamps
+	 * @param series
+	 *            output of the series, header included
+	 * @return counts of accepted and outdated transactions
+	 * @throws IOException
+	 *             if the series can not be written
+	 */
+	public BatchResult replay(Iterator<Transaction> transactions, Appendable series) throws IOException {
+		BatchResult result = new BatchResult();
+		series.append(HEADER).append('\n');
+
+		long nextRowAt = Long.MIN_VALUE;
+		while (transactions.hasNext()) {
+			Transaction transaction = transactions.next();
+			long timestamp = transaction.getTimestamp().toEpochMilli();
+			if (nextRowAt == Long.MIN_VALUE) {
+				nextRowAt = (Math.floorDiv(timestamp, intervalInMilliSeconds) + 1) * intervalInMilliSeconds;
+			}
+			for (; nextRowAt < timestamp; nextRowAt += intervalInMilliSeconds) {
+				writeRow(nextRowAt, series);
+			}
+
+			clock.advanceTo(timestamp);
+			try {
+				transactionService.saveTransaction(transaction);
+				result.addAccepted();
+			} catch (OutDatedTransactionException ex) {
+				result.addOutdated();
+			}
+		}
+
+		if (nextRowAt != Long.MIN_VALUE) {
+			writeRow(nextRowAt, series);
+		}
+		return result;
+	}
+
+	private void writeRow(long time, Appendable series) throws IOException {
+		clock.advanceTo(time);
+		Statistic statistic = transactionService.getStatistic();
+		series.append(Instant.ofEpochMilli(time).toString()).append(',').append(format(statistic.getSum()))
+				.append(',').append(format(statistic.getAvg())).append(',').append(format(statistic.getMax()))
+				.append(',').append(format(statistic.getMin())).append(',')
+				.append(Long.toString(statistic.getCount())).append(',').append(format(statistic.getVariance()))
+				.append(',').append(format(statistic.getStddev())).append('\n');
+	}
+
+	private String format(BigDecimal value) {
+		return value == null ? "" : value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+	}
+}
@@ -0,0 +1,169 @@
+package com.n26.rest;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reads small request bodies with the non-blocking input of Servlet 3.1
+ * before the request is handled, so a client sending its body slowly holds no
+ * thread in between.
+ * <p>
+ * The request is put into asynchronous mode and the body is read whenever
+ * the container reports data, then dispatched again with the body in memory.
+ * Bodies of unknown length or larger than the limit, such as batches, are left
+ * to be streamed as before.
+ */
+public class BodyPrefetchFilter implements Filter {
+	private static final String BODY_ATTRIBUTE = BodyPrefetchFilter.class.getName() + ".body";
+
+	private final int maxSizeInBytes;
+
+	/**
+	 * @param maxSizeInBytes
+	 *            largest body read ahead
+	 */
+	public BodyPrefetchFilter(int maxSizeInBytes) {
+		this.maxSizeInBytes = maxSizeInBytes;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) {
+		// Nothing to initialize
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		Object body = request.getAttribute(BODY_ATTRIBUTE);
+		if (body != null && request.getDispatcherType() == DispatcherType.ASYNC) {
+			request.removeAttribute(BODY_ATTRIBUTE);
+			chain.doFilter(new PrefetchedRequest((HttpServletRequest) request, (byte[]) body), response);
+			return;
+		}
+
+		long length = request.getContentLengthLong();
+		if (request.getDispatcherType() != DispatcherType.REQUEST || length <= 0 || length > maxSizeInBytes
+				|| !request.isAsyncSupported()) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		AsyncContext asyncContext = request.startAsync();
+		ServletInputStream input = request.getInputStream();
+		input.setReadListener(new BodyReader(asyncContext, input, (int) length));
+	}
+
+	@Override
+	public void destroy() {
+		// Nothing to release
+	}
+
+	/**
+	 * Collects the body as long as data is available, and dispatches the
+	 * request once it is complete
+	 */
+	private static final class BodyReader implements ReadListener {
+		private final AsyncContext asyncContext;
+		private final ServletInputStream input;
+		private final ByteArrayOutputStream body;
+		private final byte[] buffer = new byte[4096];
+
+		BodyReader(AsyncContext asyncContext, ServletInputStream input, int length) {
+			this.asyncContext = asyncContext;
+			this.input = input;
+			this.body = new ByteArrayOutputStream(length);
+		}
+
+		@Override
+		public void onDataAvailable() throws IOException {
+			while (input.isReady()) {
+				int read = input.read(buffer);
+				if (read < 0) {
+					return;
+				}
+				body.write(buffer, 0, read);
+			}
+		}
+
+		@Override
+		public void onAllDataRead() {
+			asyncContext.getRequest().setAttribute(BODY_ATTRIBUTE, body.toByteArray());
+			asyncContext.dispatch();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			((HttpServletResponse) asyncContext.getResponse()).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+			asyncContext.complete();
+		}
+	}
+
+	/**
+	 * Request whose body is read from memory
+	 */
+	private static final class PrefetchedRequest extends HttpServletRequestWrapper {
+		private final ByteArrayInputStream body;
+		private final ServletInputStream input = new ServletInputStream() {
+			@Override
+			public int read() {
+				return body.read();
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int length) {
+				return body.read(bytes, offset, length);
+			}
+
+			@Override
+			public boolean isFinished() {
+				return body.available() == 0;
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setReadListener(ReadListener readListener) {
+				throw new IllegalStateException("The body was already read");
+			}
+		};
+
+		PrefetchedRequest(HttpServletRequest request, byte[] body) {
+			super(request);
+			this.body = new ByteArrayInputStream(body);
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			return input;
+		}
+
+		@Override
+		public BufferedReader getReader() throws UnsupportedEncodingException {
+			String encoding = getCharacterEncoding();
+			return new BufferedReader(
+					new InputStreamReader(input, encoding == null ? StandardCharsets.ISO_8859_1.name() : encoding));
+		}
+	}
+}
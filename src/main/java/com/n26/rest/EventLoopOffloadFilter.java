@@ -0,0 +1,68 @@
+package com.n26.rest;
+
+import java.util.List;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Handles the requests on a thread of the given {@link Scheduler} instead of
+ * the event loop, as the shared controllers call the service synchronously.
+ * Saving a transaction may wait for a contended writer and, in the pipeline
+ * ingest mode, reading a statistic waits for the transactions published
+ * before.
+ * <p>
+ * The body is collected on the event loop and handed to the controller from
+ * memory, so it is decoded on the same thread as the controller is called.
+ * Batches are left to {@link ReactiveTransactionBatchController}, which
+ * streams their body itself.
+ */
+public class EventLoopOffloadFilter implements WebFilter {
+	private static final String BATCH_PATH = "/transactions/batch";
+
+	private final Scheduler scheduler;
+
+	/**
+	 * @param scheduler
+	 *            runs the handlers, whose threads may block
+	 */
+	public EventLoopOffloadFilter(Scheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (BATCH_PATH.equals(request.getPath().pathWithinApplication().value())) {
+			return chain.filter(exchange);
+		}
+
+		return request.getBody().collectList().publishOn(scheduler)
+				.flatMap(body -> chain.filter(exchange.mutate().request(new CollectedRequest(request, body)).build()));
+	}
+
+	/**
+	 * Request whose body is read from the collected buffers
+	 */
+	private static final class CollectedRequest extends ServerHttpRequestDecorator {
+		private final List<DataBuffer> body;
+
+		CollectedRequest(ServerHttpRequest request, List<DataBuffer> body) {
+			super(request);
+			this.body = body;
+		}
+
+		@Override
+		public Flux<DataBuffer> getBody() {
+			return Flux.fromIterable(body);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.n26.rest;
+
+import java.time.Duration;
+import java.util.logging.Level;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.n26.exception.UnknownWindowException;
+import com.n26.model.Statistic;
+import com.n26.service.TransactionService;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+
+/**
+ * Controller class serving the exact statistic of the stored transactions,
+ * only available with store.enabled
+ * 
+ * @see {@link Statistic}
+ */
+@Log
+@RestController
+@RequestMapping("/statistics/exact")
+@ConditionalOnProperty(name = "store.enabled", havingValue = "true")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ExactStatisticController {
+
+	private final TransactionService transactionService;
+
+	/**
+	 * Returns the exact statistic of the transactions for the last minute, or
+	 * for the given window, scanned from the stored transactions. It is exact
+	 * in time, not in amounts: every amount is stored rounded half up to
+	 * statistic.scale decimal places, and a transaction whose scaled amount
+	 * does not fit into a long is left out.
+	 * 
+	 * @param window
+	 *            length of the window such as 10s or 5m, optional
+	 * @return {@link Statistic}
+	 */
+	@ApiOperation(value = "Exact last 60 second statistic", notes = "Returns the statistic of the stored transactions for the last minute, or for one of the configured windows, expired to the millisecond. Amounts are stored rounded half up to statistic.scale decimal places, and transactions whose scaled amount does not fit into a long are left out.", response = Statistic.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "In case of success", response = Statistic.class),
+			@ApiResponse(code = 400, message = "If the window is not configured") })
+	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public Statistic getExactStatistic(@RequestParam(value = "window", required = false) String window) {
+		Statistic statistic = transactionService.getExactStatistic(window == null ? null : parseWindow(window));
+		if (log.isLoggable(Level.FINE)) {
+			log.fine("Exact statistic requested: " + statistic);
+		}
+		return statistic;
+	}
+
+	private Duration parseWindow(String window) {
+		try {
+			return DurationStyle.detectAndParse(window);
+		} catch (IllegalArgumentException e) {
+			throw new UnknownWindowException(window);
+		}
+	}
+}
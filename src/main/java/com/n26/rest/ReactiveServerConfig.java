@@ -0,0 +1,41 @@
+package com.n26.rest;
+
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Serves the rest services on the Netty event loop in reactive mode. Tomcat is
+ * on the classpath for the servlet stack and would be preferred otherwise.
+ * Batches are parsed and saved off the event loop, by ingest.batch.threads
+ * threads at most, and the other requests are handled by the same threads.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfig {
+
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean(destroyMethod = "dispose")
+	public Scheduler batchScheduler(@Value("${ingest.batch.threads:4}") int threads) {
+		// Not a parallel scheduler, whose threads must not block
+		return Schedulers.fromExecutorService(
+				Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("transaction-batch-")));
+	}
+
+	@Bean
+	public EventLoopOffloadFilter eventLoopOffloadFilter(Scheduler batchScheduler) {
+		return new EventLoopOffloadFilter(batchScheduler);
+	}
+}
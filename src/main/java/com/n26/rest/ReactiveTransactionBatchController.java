@@ -0,0 +1,111 @@
+package com.n26.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.model.BatchResult;
+import com.n26.model.Transaction;
+import com.n26.service.TransactionService;
+import com.n26.util.TransactionStreamReader;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Controller class containing the rest service saving batches of transactions
+ * on the reactive stack. The chunks of the body are handed over as they arrive
+ * to a thread of the batch {@link Scheduler}, which parses and saves them like
+ * the servlet stack, so the event loop neither blocks nor holds the whole
+ * body.
+ * 
+ * @see {@link Transaction}
+ * @see {@link TransactionBatchController}
+ */
+@Log
+@Profile("reactive")
+@RestController
+@RequestMapping("/transactions")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveTransactionBatchController {
+	/**
+	 * Chunks of the body buffered ahead of the parser
+	 */
+	private static final int PREFETCH = 4;
+
+	private final TransactionService transactionService;
+	private final ObjectMapper objectMapper;
+	private final Scheduler batchScheduler;
+
+	/**
+	 * Saves a batch of transactions given as a JSON array or as newline
+	 * delimited JSON objects.
+	 * 
+	 * @param body
+	 *            request body
+	 * @return {@link BatchResult}
+	 */
+	@PostMapping(value = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			TransactionController.APPLICATION_NDJSON_VALUE }, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public Mono<BatchResult> saveTransactions(@RequestBody(required = false) Flux<DataBuffer> body) {
+		return Mono.fromCallable(() -> saveChunks(body.map(this::copy))).subscribeOn(batchScheduler)
+				.doOnNext(result -> log.info("Transaction batch saved: " + result));
+	}
+
+	/**
+	 * Reads the transactions from the chunks as the parser needs them, waiting
+	 * for the client when none is buffered
+	 */
+	private BatchResult saveChunks(Flux<InputStream> chunks) {
+		try (Stream<InputStream> stream = chunks.toStream(PREFETCH)) {
+			Iterator<InputStream> iterator = stream.iterator();
+			InputStream inputStream = new SequenceInputStream(new Enumeration<InputStream>() {
+				@Override
+				public boolean hasMoreElements() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public InputStream nextElement() {
+					return iterator.next();
+				}
+			});
+
+			TransactionStreamReader reader = new TransactionStreamReader(objectMapper, inputStream);
+			BatchResult result = transactionService.saveTransactions(reader);
+			result.addInvalid(reader.getInvalidCount());
+			return result;
+		}
+	}
+
+	/**
+	 * Copies a chunk of the body and releases its buffer on the event loop, so
+	 * no buffer is left to release if the batch fails
+	 */
+	private InputStream copy(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return new ByteArrayInputStream(bytes);
+	}
+}
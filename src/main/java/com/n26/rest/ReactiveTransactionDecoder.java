@@ -0,0 +1,68 @@
+package com.n26.rest;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.n26.model.Transaction;
+import com.n26.util.TransactionDecoder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads a posted {@link Transaction} with the {@link TransactionDecoder} on
+ * the reactive stack. The body is joined without blocking the event loop.
+ * Errors are wrapped like the Jackson decoder does, so the
+ * {@link com.n26.exception.ReactiveExceptionHandler} maps them to the same
+ * status codes.
+ */
+public class ReactiveTransactionDecoder extends AbstractDecoder<Transaction> {
+	private final TransactionDecoder transactionDecoder;
+
+	public ReactiveTransactionDecoder(TransactionDecoder transactionDecoder) {
+		super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+		this.transactionDecoder = transactionDecoder;
+	}
+
+	@Override
+	public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+		return Transaction.class == elementType.resolve() && super.canDecode(elementType, mimeType);
+	}
+
+	@Override
+	public Flux<Transaction> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+		return Flux.from(decodeToMono(inputStream, elementType, mimeType, hints));
+	}
+
+	@Override
+	public Mono<Transaction> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+		return DataBufferUtils.join(inputStream).map(this::decode);
+	}
+
+	private Transaction decode(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+
+		try {
+			return transactionDecoder.decode(bytes, bytes.length);
+		} catch (JsonProcessingException ex) {
+			throw new DecodingException("JSON decoding error: " + ex.getOriginalMessage(), ex);
+		} catch (IOException ex) {
+			throw new DecodingException("I/O error while parsing input stream", ex);
+		}
+	}
+}
@@ -1,14 +1,27 @@
 package com.n26.rest;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.logging.Level;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.n26.exception.InvalidHistoryRangeException;
+import com.n26.exception.UnknownWindowException;
+import com.n26.model.Quantiles;
 import com.n26.model.Statistic;
+import com.n26.model.StatisticSlice;
 import com.n26.service.TransactionService;
 
 import io.swagger.annotations.ApiOperation;
@@ -29,19 +42,123 @@ import lombok.extern.java.Log;
 public class StatisticController {
 
 	private final TransactionService transactionService;
+	private final StatisticResponseCache statisticResponseCache;
 
 	/**
-	 * Returns statistic of the transactions for the last minute.
+	 * Returns statistic of the transactions for the last minute, or for the
+	 * given window. The JSON encoded statistic is cached until the statistic
+	 * changes.
 	 * 
-	 * @return {@link Statistic}
+	 * @param window
+	 *            length of the window such as 10s or 5m, optional
+	 * @return JSON encoded {@link Statistic}
 	 */
-	@ApiOperation(value = "Last 60 second statistic", notes = "Returns the statistic of transactions for the last minute", response = Statistic.class)
-	@ApiResponses(value = { @ApiResponse(code = 200, message = "In case of success", response = Statistic.class) })
-	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiOperation(value = "Last 60 second statistic", notes = "Returns the statistic of transactions for the last minute, or for one of the configured windows", response = Statistic.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "In case of success", response = Statistic.class),
+			@ApiResponse(code = 400, message = "If the window is not configured") })
+	@GetMapping(produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
 	@ResponseStatus(HttpStatus.OK)
-	public Statistic getStatistic() {
-		Statistic statistic = transactionService.getStatistic();
-		log.info("Statistic requested: " + statistic);
+	public byte[] getStatistic(@RequestParam(value = "window", required = false) String window) {
+		byte[] statistic = statisticResponseCache.getStatistic(window == null ? null : parseWindow(window));
+		if (log.isLoggable(Level.FINE)) {
+			log.fine("Statistic requested: " + new String(statistic, StandardCharsets.UTF_8));
+		}
 		return statistic;
 	}
+
+	/**
+	 * Returns statistic of the transactions for the last minute, or for the
+	 * given window, together with the variance and standard deviation of their
+	 * amounts. These are served apart from {@link #getStatistic(String)}, whose
+	 * response is left as it was for existing clients.
+	 * 
+	 * @param window
+	 *            length of the window such as 10s or 5m, optional
+	 * @return {@link Statistic} with variance and standard deviation
+	 */
+	@ApiOperation(value = "Last 60 second statistic with variance", notes = "Returns the statistic of transactions for the last minute, or for one of the configured windows, with variance and standard deviation of the amounts", response = Statistic.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "In case of success", response = Statistic.class),
+			@ApiResponse(code = 400, message = "If the window is not configured") })
+	@GetMapping(value = "/variance", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public Statistic getVariance(@RequestParam(value = "window", required = false) String window) {
+		Statistic statistic = window == null ? transactionService.getStatistic()
+				: transactionService.getStatistic(parseWindow(window));
+		if (log.isLoggable(Level.FINE)) {
+			log.fine("Variance requested: " + statistic);
+		}
+		return statistic;
+	}
+
+	/**
+	 * Returns the median, 90th and 99th percentile of the amounts of the
+	 * transactions for the last minute, or for the given window.
+	 * 
+	 * @param window
+	 *            length of the window such as 10s or 5m, optional
+	 * @return {@link Quantiles}
+	 */
+	@ApiOperation(value = "Last 60 second quantiles", notes = "Returns p50, p90 and p99 of the amounts of transactions for the last minute, or for one of the configured windows", response = Quantiles.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "In case of success", response = Quantiles.class),
+			@ApiResponse(code = 400, message = "If the window is not configured") })
+	@GetMapping(value = "/quantiles", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public Quantiles getQuantiles(@RequestParam(value = "window", required = false) String window) {
+		Quantiles quantiles = window == null ? transactionService.getQuantiles()
+				: transactionService.getQuantiles(parseWindow(window));
+		if (log.isLoggable(Level.FINE)) {
+			log.fine("Quantiles requested: " + quantiles);
+		}
+		return quantiles;
+	}
+
+	/**
+	 * Returns the statistic of every time slice of the given resolution within
+	 * the given range, for transactions which have left the longest window.
+	 * 
+	 * @param from
+	 *            ISO-8601 start of the range, inclusive
+	 * @param to
+	 *            ISO-8601 end of the range, exclusive
+	 * @param resolution
+	 *            length of the time slices such as 1m or 1h, 1m by default
+	 * @return {@link StatisticSlice}s, oldest first
+	 */
+	@ApiOperation(value = "Statistic history", notes = "Returns the statistic of transactions which have left the longest window, per minute or hour", response = StatisticSlice.class, responseContainer = "List")
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "In case of success"),
+			@ApiResponse(code = 400, message = "If the range is invalid or the resolution is not configured") })
+	@GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public List<StatisticSlice> getHistory(@RequestParam("from") String from, @RequestParam("to") String to,
+			@RequestParam(value = "resolution", defaultValue = "1m") String resolution) {
+		Duration parsedResolution;
+		try {
+			parsedResolution = DurationStyle.detectAndParse(resolution);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidHistoryRangeException("unknown resolution " + resolution);
+		}
+
+		List<StatisticSlice> history = transactionService.getHistory(parseInstant(from), parseInstant(to),
+				parsedResolution);
+		if (log.isLoggable(Level.FINE)) {
+			log.fine("History requested: " + history.size() + " time slices");
+		}
+		return history;
+	}
+
+	private Instant parseInstant(String instant) {
+		try {
+			return Instant.parse(instant);
+		} catch (DateTimeParseException e) {
+			throw new InvalidHistoryRangeException("unparseable instant " + instant);
+		}
+	}
+
+	private Duration parseWindow(String window) {
+		try {
+			return DurationStyle.detectAndParse(window);
+		} catch (IllegalArgumentException e) {
+			throw new UnknownWindowException(window);
+		}
+	}
 }
@@ -0,0 +1,100 @@
+package com.n26.rest;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.model.Statistic;
+import com.n26.service.TransactionService;
+
+/**
+ * Keeps the JSON encoded bytes of the last statistic of every window.
+ * <p>
+ * The window usually returns the same immutable {@link Statistic} instance as
+ * long as its aggregate has not changed, and otherwise an equal one, so the
+ * bytes are encoded again only when the statistic has actually changed. With
+ * a positive refresh interval the bytes are served without asking the window
+ * at all until they are that old. Variance and standard deviation are only
+ * encoded with statistic.response.variance, which keeps the response of the
+ * statistic unchanged for existing clients. They are always served by
+ * {@link StatisticController#getVariance(String)}.
+ */
+@Component
+public class StatisticResponseCache {
+	private final TransactionService transactionService;
+	private final ObjectMapper objectMapper;
+	private final long refreshInMilliSeconds;
+	private final boolean variance;
+
+	private final ConcurrentMap<Duration, EncodedStatistic> encodedStatistics = new ConcurrentHashMap<>();
+	private volatile EncodedStatistic defaultEncodedStatistic;
+
+	@Autowired
+	public StatisticResponseCache(TransactionService transactionService, ObjectMapper objectMapper,
+			@Value("${statistic.response.refresh.in.milliseconds:0}") long refreshInMilliSeconds,
+			@Value("${statistic.response.variance:false}") boolean variance) {
+		this.transactionService = transactionService;
+		this.objectMapper = objectMapper;
+		this.refreshInMilliSeconds = refreshInMilliSeconds;
+		this.variance = variance;
+	}
+
+	/**
+	 * Returns the JSON encoded statistic of the given window
+	 * 
+	 * @param window
+	 *            length of the window, or null for the last minute
+	 * @return JSON encoded {@link Statistic}
+	 */
+	public byte[] getStatistic(Duration window) {
+		EncodedStatistic cached = window == null ? defaultEncodedStatistic : encodedStatistics.get(window);
+		if (cached != null && refreshInMilliSeconds > 0
+				&& System.currentTimeMillis() - cached.encodedAt < refreshInMilliSeconds) {
+			return cached.bytes;
+		}
+
+		Statistic statistic = window == null ? transactionService.getStatistic()
+				: transactionService.getStatistic(window);
+		if (cached != null && (cached.statistic == statistic || cached.statistic.equals(statistic))) {
+			return cached.bytes;
+		}
+
+		EncodedStatistic encoded = new EncodedStatistic(statistic, encode(statistic), System.currentTimeMillis());
+		if (window == null) {
+			defaultEncodedStatistic = encoded;
+		} else {
+			encodedStatistics.put(window, encoded);
+		}
+		return encoded.bytes;
+	}
+
+	private byte[] encode(Statistic statistic) {
+		try {
+			return objectMapper.writeValueAsBytes(variance ? statistic : statistic.withoutVariance());
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Statistic together with its JSON encoded bytes
+	 */
+	private static final class EncodedStatistic {
+		private final Statistic statistic;
+		private final byte[] bytes;
+		private final long encodedAt;
+
+		private EncodedStatistic(Statistic statistic, byte[] bytes, long encodedAt) {
+			this.statistic = statistic;
+			this.bytes = bytes;
+			this.encodedAt = encodedAt;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.n26.rest;
+
+import java.io.InputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.model.BatchResult;
+import com.n26.model.Transaction;
+import com.n26.service.TransactionService;
+import com.n26.util.TransactionStreamReader;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+
+/**
+ * Controller class containing the rest service saving batches of transactions
+ * on the servlet stack
+ * 
+ * @see {@link Transaction}
+ * @see {@link ReactiveTransactionBatchController}
+ */
+@Log
+@Profile("!reactive")
+@RestController
+@RequestMapping("/transactions")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TransactionBatchController {
+
+	private final TransactionService transactionService;
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Saves a batch of transactions given as a JSON array or as newline
+	 * delimited JSON objects. The body is read as a stream.
+	 * 
+	 * @param body
+	 *            request body
+	 * @return {@link BatchResult}
+	 */
+	@ApiOperation(value = "Transaction Batch Handler", notes = "Saves a batch of Transactions", response = BatchResult.class)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Counts of accepted, outdated, future dated, duplicate, shed and invalid transactions", response = BatchResult.class),
+			@ApiResponse(code = 400, message = "If the JSON is invalid, in which case no transaction is saved"),
+			@ApiResponse(code = 503, message = "If the ingest is overloaded, retry after the Retry-After header") })
+	@PostMapping(value = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			TransactionController.APPLICATION_NDJSON_VALUE }, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public BatchResult saveTransactions(InputStream body) {
+		TransactionStreamReader reader = new TransactionStreamReader(objectMapper, body);
+		BatchResult result = transactionService.saveTransactions(reader);
+		result.addInvalid(reader.getInvalidCount());
+
+		log.info("Transaction batch saved: " + result);
+		return result;
+	}
+}
@@ -33,6 +33,8 @@ import lombok.extern.java.Log;
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class TransactionController {
 
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
 	private final TransactionService transactionService;
 
 	/**
@@ -42,9 +44,11 @@ public class TransactionController {
 	 */
 	@ApiOperation(value = "Transaction Handler", notes = "Saves Transactions")
 	@ApiResponses(value = { @ApiResponse(code = 201, message = "In case of success"),
+			@ApiResponse(code = 202, message = "If the ingest is overloaded and the transaction is not sampled"),
 			@ApiResponse(code = 204, message = "If transaction is older than 60 seconds"),
 			@ApiResponse(code = 400, message = "If the JSON is invalid"),
-			@ApiResponse(code = 422, message = "If any of the fields are not parsable or the transaction date is in the future") })
+			@ApiResponse(code = 422, message = "If any of the fields are not parsable or the transaction date is in the future"),
+			@ApiResponse(code = 503, message = "If the ingest is overloaded, retry after the Retry-After header") })
 	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.CREATED)
 	public void saveTransaction(@RequestBody @Valid Transaction transaction) {
@@ -0,0 +1,31 @@
+package com.n26.rest;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.util.TransactionDecoder;
+
+/**
+ * Registers the {@link TransactionDecoder} ahead of the generic JSON
+ * converters of both the servlet and the reactive stack.
+ */
+@Configuration
+public class TransactionDecoderConfig {
+
+	@Bean
+	public TransactionDecoder transactionDecoder(ObjectMapper objectMapper) {
+		return new TransactionDecoder(objectMapper);
+	}
+
+	@Bean
+	public TransactionHttpMessageConverter transactionHttpMessageConverter(TransactionDecoder transactionDecoder) {
+		return new TransactionHttpMessageConverter(transactionDecoder);
+	}
+
+	@Bean
+	public CodecCustomizer transactionCodecCustomizer(TransactionDecoder transactionDecoder) {
+		return configurer -> configurer.customCodecs().decoder(new ReactiveTransactionDecoder(transactionDecoder));
+	}
+}
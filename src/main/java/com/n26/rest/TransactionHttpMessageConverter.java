@@ -0,0 +1,85 @@
+package com.n26.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.n26.model.Transaction;
+import com.n26.util.TransactionDecoder;
+
+/**
+ * Reads a posted {@link Transaction} with the {@link TransactionDecoder} on
+ * the servlet stack. Errors are wrapped like the Jackson converter does, so
+ * the {@link com.n26.exception.CustomExceptionHandler} maps them to the same
+ * status codes.
+ */
+public class TransactionHttpMessageConverter extends AbstractHttpMessageConverter<Transaction> {
+	/**
+	 * Largest body read into a buffer of its declared length
+	 */
+	private static final int MAX_SIZED_BODY = 4096;
+
+	private final TransactionDecoder transactionDecoder;
+
+	public TransactionHttpMessageConverter(TransactionDecoder transactionDecoder) {
+		super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+		this.transactionDecoder = transactionDecoder;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return Transaction.class == clazz;
+	}
+
+	@Override
+	protected boolean canWrite(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected Transaction readInternal(Class<? extends Transaction> clazz, HttpInputMessage inputMessage)
+			throws IOException {
+		byte[] bytes = readBody(inputMessage);
+		try {
+			return transactionDecoder.decode(bytes, bytes.length);
+		} catch (JsonProcessingException ex) {
+			throw new HttpMessageNotReadableException("JSON parse error: " + ex.getOriginalMessage(), ex);
+		}
+	}
+
+	@Override
+	protected void writeInternal(Transaction transaction, HttpOutputMessage outputMessage) {
+		throw new HttpMessageNotWritableException("Transactions are only read by this converter, not written");
+	}
+
+	/**
+	 * Reads the body into an array of its declared length if it is small,
+	 * without an intermediate buffer
+	 */
+	private byte[] readBody(HttpInputMessage inputMessage) throws IOException {
+		long contentLength = inputMessage.getHeaders().getContentLength();
+		InputStream body = inputMessage.getBody();
+		if (contentLength < 0 || contentLength > MAX_SIZED_BODY) {
+			return StreamUtils.copyToByteArray(body);
+		}
+
+		byte[] bytes = new byte[(int) contentLength];
+		int length = 0;
+		while (length < bytes.length) {
+			int read = body.read(bytes, length, bytes.length - length);
+			if (read < 0) {
+				throw new HttpMessageNotReadableException("Body shorter than its content length");
+			}
+			length += read;
+		}
+		return bytes;
+	}
+}
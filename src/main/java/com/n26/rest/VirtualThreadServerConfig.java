@@ -0,0 +1,84 @@
+package com.n26.rest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.servlet.DispatcherType;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import lombok.extern.java.Log;
+
+/**
+ * Serves the requests of the servlet stack on virtual threads with
+ * spring.threads.virtual.enabled, the property later Spring Boot versions
+ * use for the same.
+ * <p>
+ * Tomcat hands every request to a new virtual thread instead of taking one of
+ * its pool, so a slow client only holds a virtual thread while it sends its
+ * body, and the number of concurrent requests is bounded by
+ * server.tomcat.max-connections rather than server.tomcat.max-threads.
+ * <p>
+ * The blocking reads of the Tomcat NIO connector wait on a monitor, which pins
+ * the carrier thread of a virtual thread on Java 21. The bodies of single
+ * transactions, up to server.prefetch.max.size.in.bytes, are therefore read
+ * ahead by a {@link BodyPrefetchFilter} without blocking, so a slow client
+ * holds neither a virtual thread nor a carrier while it sends its body. The
+ * executor is shut down with the application context.
+ * <p>
+ * Virtual threads need Java 21. The executor is looked up reflectively, so
+ * the application still builds and runs on Java 8 without this mode.
+ */
+@Log
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadServerConfig implements DisposableBean {
+	private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadCustomizer() {
+		return factory -> factory.addConnectorCustomizers(connector -> {
+			((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor);
+			log.info("Serving requests on virtual threads");
+		});
+	}
+
+	@Bean
+	public FilterRegistrationBean<BodyPrefetchFilter> bodyPrefetchFilter(
+			@Value("${server.prefetch.max.size.in.bytes:16384}") int maxSizeInBytes) {
+		FilterRegistrationBean<BodyPrefetchFilter> registration = new FilterRegistrationBean<>(
+				new BodyPrefetchFilter(maxSizeInBytes));
+		registration.setAsyncSupported(true);
+		registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+		// Last, so the filters before it see the request once, like any asynchronous request
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+		return registration;
+	}
+
+	/**
+	 * Shuts the executor down through its interface, as its class is not
+	 * public and a destroy method can not be called on it reflectively
+	 */
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException(
+					"Virtual threads need Java 21, running on " + System.getProperty("java.version"), ex);
+		}
+	}
+}
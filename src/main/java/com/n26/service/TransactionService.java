@@ -1,6 +1,18 @@
 package com.n26.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+
+import com.n26.exception.IngestOverloadedException;
+import com.n26.exception.InvalidHistoryRangeException;
+import com.n26.exception.ShedTransactionException;
+import com.n26.exception.UnknownWindowException;
+import com.n26.model.BatchResult;
+import com.n26.model.Quantiles;
 import com.n26.model.Statistic;
+import com.n26.model.StatisticSlice;
 import com.n26.model.Transaction;
 
 /**
@@ -14,9 +26,28 @@ public interface TransactionService {
 	 * Saves a transaction.
 	 * 
 	 * @param {@link Transaction}
+	 * @throws IngestOverloadedException
+	 *             if the ingest is beyond its budget and rejects requests
+	 * @throws ShedTransactionException
+	 *             if the ingest is beyond its budget and the transaction is not
+	 *             sampled
 	 */
 	void saveTransaction(Transaction transaction);
 
+	/**
+	 * Saves a batch of transactions. Each transaction is validated like in
+	 * {@link #saveTransaction(Transaction)}, and the valid ones are added to
+	 * the statistic in one step. Beyond the budget of the ingest, only a
+	 * sample of them is saved, if the ingest samples.
+	 * 
+	 * @param transactions
+	 *            iterator over the transactions of the batch
+	 * @return {@link BatchResult}
+	 * @throws IngestOverloadedException
+	 *             if the ingest is beyond its budget and rejects requests
+	 */
+	BatchResult saveTransactions(Iterator<Transaction> transactions);
+
 	/**
 	 * Deletes all transactions in the system.
 	 */
@@ -28,4 +59,66 @@ public interface TransactionService {
 	 * @return {@link Statistic}
 	 */
 	Statistic getStatistic();
+
+	/**
+	 * Returns statistic of the transactions for the given window.
+	 * 
+	 * @param window
+	 *            length of the window, one of the configured windows
+	 * @return {@link Statistic}
+	 * @throws UnknownWindowException
+	 *             if no window of the given length is configured
+	 */
+	Statistic getStatistic(Duration window);
+
+	/**
+	 * Returns the exact statistic of the kept transactions for the last minute,
+	 * or for the given window, without the early expiry of the buckets.
+	 * 
+	 * @param window
+	 *            length of the window, one of the configured windows, or null
+	 *            for the last minute
+	 * @return {@link Statistic}
+	 * @throws UnknownWindowException
+	 *             if no window of the given length is configured
+	 */
+	Statistic getExactStatistic(Duration window);
+
+	/**
+	 * Returns the median, 90th and 99th percentile of the amounts of the
+	 * transactions for the last minute.
+	 * 
+	 * @return {@link Quantiles}
+	 */
+	Quantiles getQuantiles();
+
+	/**
+	 * Returns the median, 90th and 99th percentile of the amounts of the
+	 * transactions for the given window.
+	 * 
+	 * @param window
+	 *            length of the window, one of the configured windows
+	 * @return {@link Quantiles}
+	 * @throws UnknownWindowException
+	 *             if no window of the given length is configured
+	 */
+	Quantiles getQuantiles(Duration window);
+
+	/**
+	 * Returns the statistic of every time slice of the given resolution which
+	 * overlaps the given range and holds transactions that have left the
+	 * longest window.
+	 * 
+	 * @param from
+	 *            start of the range, inclusive
+	 * @param to
+	 *            end of the range, exclusive
+	 * @param resolution
+	 *            length of the time slices, one of the configured resolutions
+	 * @return {@link StatisticSlice}s, oldest first
+	 * @throws InvalidHistoryRangeException
+	 *             if the range is reversed or no resolution of the given
+	 *             length is configured
+	 */
+	List<StatisticSlice> getHistory(Instant from, Instant to, Duration resolution);
 }
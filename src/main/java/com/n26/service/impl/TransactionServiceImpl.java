@@ -1,109 +1,280 @@
 package com.n26.service.impl;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.Lock;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.n26.admission.IngestAdmission;
+import com.n26.admission.IngestAdmission.Shedding;
+import com.n26.dedup.TransactionIdFilter;
+import com.n26.exception.IngestOverloadedException;
+import com.n26.exception.InvalidHistoryRangeException;
 import com.n26.exception.OutDatedTransactionException;
+import com.n26.exception.ShedTransactionException;
+import com.n26.exception.UnknownWindowException;
+import com.n26.journal.TransactionJournal;
+import com.n26.model.BatchResult;
+import com.n26.model.Quantiles;
 import com.n26.model.Statistic;
+import com.n26.model.StatisticSlice;
 import com.n26.model.Transaction;
 import com.n26.service.TransactionService;
+import com.n26.store.TransactionStore;
+import com.n26.window.BucketRing;
+import com.n26.window.StatisticArchive;
+import com.n26.window.StatisticWindow;
 
-import net.jodah.expiringmap.ExpirationPolicy;
-import net.jodah.expiringmap.ExpiringMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Implementation of {@link TransactionService}
  */
 @Service
 public class TransactionServiceImpl implements TransactionService {
-	private final ExpiringMap<Transaction, Instant> transactionCache;
+	private final StatisticWindow statisticWindow;
+	private final TransactionJournal transactionJournal;
+	private final StatisticArchive statisticArchive;
+	private final TransactionStore transactionStore;
+	private final TransactionIdFilter transactionIdFilter;
+	private final IngestAdmission ingestAdmission;
+	private final Clock clock;
 	private int cacheTimeInMilliSeconds;
-	private Statistic statistic;
 
-	private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-	private final Lock readLock = readWriteLock.readLock();
-	private final Lock writeLock = readWriteLock.writeLock();
+	private final Counter acceptedCounter;
+	private final Counter outdatedCounter;
+	private final Counter futureDatedCounter;
+	private final Counter duplicateCounter;
+	private final Counter shedCounter;
+	private final Counter rejectedCounter;
 
 	@Autowired
-	public TransactionServiceImpl(@Value("${cache.time.in.milliseconds}") int cacheTimeInMilliSeconds) {
+	public TransactionServiceImpl(StatisticWindow statisticWindow, TransactionJournal transactionJournal,
+			StatisticArchive statisticArchive, TransactionStore transactionStore,
+			TransactionIdFilter transactionIdFilter, IngestAdmission ingestAdmission, Clock clock,
+			MeterRegistry meterRegistry, @Value("${cache.time.in.milliseconds}") int cacheTimeInMilliSeconds) {
+		this.statisticWindow = statisticWindow;
+		this.transactionJournal = transactionJournal;
+		this.statisticArchive = statisticArchive;
+		this.transactionStore = transactionStore;
+		this.transactionIdFilter = transactionIdFilter;
+		this.ingestAdmission = ingestAdmission;
+		this.clock = clock;
 		this.cacheTimeInMilliSeconds = cacheTimeInMilliSeconds;
-		this.statistic = new Statistic();
-		this.transactionCache = ExpiringMap.builder().variableExpiration()
-				.expirationListener((key, value) -> removedTransactionListener((Transaction) key)).build();
+
+		this.acceptedCounter = transactionCounter(meterRegistry, "accepted");
+		this.outdatedCounter = transactionCounter(meterRegistry, "outdated");
+		this.futureDatedCounter = transactionCounter(meterRegistry, "future_dated");
+		this.duplicateCounter = transactionCounter(meterRegistry, "duplicate");
+		this.shedCounter = transactionCounter(meterRegistry, "shed");
+		this.rejectedCounter = Counter.builder("ingest.rejected")
+				.description("Requests saving transactions rejected beyond the ingest budget").register(meterRegistry);
+		meterRegistry.gauge("ingest.in.flight", ingestAdmission, IngestAdmission::getInFlight);
 	}
 
 	@Override
 	public void saveTransaction(Transaction transaction) {
 		if (!isTransactionValid(transaction)) {
+			outdatedCounter.increment();
 			throw new OutDatedTransactionException(transaction);
 		}
 
-		writeLock.lock();
+		if (!ingestAdmission.tryAcquire()) {
+			saveBeyondBudget(transaction);
+			return;
+		}
 		try {
-			transactionCache.put(transaction, transaction.getTimestamp(), ExpirationPolicy.CREATED,
-					getExpireDateOfTransaction(transaction), TimeUnit.MILLISECONDS);
-
-			statistic.addTransaction(transaction);
+			save(transaction);
 		} finally {
-			writeLock.unlock();
+			ingestAdmission.release();
 		}
 	}
 
 	@Override
-	public Statistic getStatistic() {
-		readLock.lock();
+	public BatchResult saveTransactions(Iterator<Transaction> transactions) {
+		boolean admitted = ingestAdmission.tryAcquire();
+		if (!admitted && ingestAdmission.getShedding() == Shedding.REJECT) {
+			rejectedCounter.increment();
+			throw new IngestOverloadedException(ingestAdmission.getRetryAfterInSeconds());
+		}
+
 		try {
-			return statistic;
+			return saveTransactions(transactions, admitted);
 		} finally {
-			readLock.unlock();
+			if (admitted) {
+				ingestAdmission.release();
+			}
 		}
 	}
 
 	@Override
-	public void deleteTransactions() {
-		writeLock.lock();
-		try {
-			transactionCache.clear();
+	public Statistic getStatistic() {
+		return statisticWindow.getStatistic(cacheTimeInMilliSeconds, clock.millis());
+	}
 
-			statistic = new Statistic();
-		} finally {
-			writeLock.unlock();
-		}
+	@Override
+	public Statistic getStatistic(Duration window) {
+		return statisticWindow.getStatistic(toConfiguredWindow(window), clock.millis());
 	}
 
-	private boolean isTransactionValid(Transaction transaction) {
-		long milliSeconds = ChronoUnit.MILLIS.between(transaction.getTimestamp(), Instant.now());
-		if (milliSeconds < 0) {
-			throw new IllegalArgumentException("Transaction's date is in the future: " + transaction);
+	@Override
+	public Statistic getExactStatistic(Duration window) {
+		long windowInMilliSeconds = window == null ? cacheTimeInMilliSeconds : toConfiguredWindow(window);
+		return transactionStore.getStatistic(windowInMilliSeconds, clock.millis());
+	}
+
+	@Override
+	public Quantiles getQuantiles() {
+		return statisticWindow.getQuantiles(cacheTimeInMilliSeconds, clock.millis());
+	}
+
+	@Override
+	public Quantiles getQuantiles(Duration window) {
+		return statisticWindow.getQuantiles(toConfiguredWindow(window), clock.millis());
+	}
+
+	@Override
+	public List<StatisticSlice> getHistory(Instant from, Instant to, Duration resolution) {
+		if (to.isBefore(from)) {
+			throw new InvalidHistoryRangeException(from + " is after " + to);
 		}
 
-		return milliSeconds >= 0 && milliSeconds < cacheTimeInMilliSeconds;
+		long resolutionInMilliSeconds = resolution.toMillis();
+		for (long configured : statisticArchive.getResolutions()) {
+			if (configured == resolutionInMilliSeconds) {
+				// Archives the buckets which have left the window since the last tick, or the last request
+				statisticWindow.expire(clock.millis());
+				return statisticArchive.getHistory(from.toEpochMilli(), to.toEpochMilli(), resolutionInMilliSeconds);
+			}
+		}
+
+		throw new InvalidHistoryRangeException("unknown resolution " + resolution);
 	}
 
-	private long getExpireDateOfTransaction(Transaction transaction) {
-		long milliSeconds = ChronoUnit.MILLIS.between(transaction.getTimestamp(), Instant.now());
+	@Override
+	public void deleteTransactions() {
+		statisticWindow.clear();
+		statisticArchive.clear();
+		transactionStore.clear();
+		transactionIdFilter.clear();
+		transactionJournal.clear();
+	}
 
-		return cacheTimeInMilliSeconds - milliSeconds;
+	/**
+	 * Rejects a transaction beyond the budget of the ingest, or saves it if
+	 * it is sampled
+	 */
+	private void saveBeyondBudget(Transaction transaction) {
+		if (ingestAdmission.getShedding() == Shedding.REJECT) {
+			rejectedCounter.increment();
+			throw new IngestOverloadedException(ingestAdmission.getRetryAfterInSeconds());
+		}
+		if (!ingestAdmission.isSampled()) {
+			shedCounter.increment();
+			throw new ShedTransactionException();
+		}
+		save(transaction);
+	}
+
+	private void save(Transaction transaction) {
+		long timestamp = transaction.getTimestamp().toEpochMilli();
+		if (!transactionIdFilter.add(transaction.getId(), timestamp)) {
+			// Posted again, already counted
+			duplicateCounter.increment();
+			return;
+		}
+
+		long now = clock.millis();
+		statisticWindow.add(transaction.getAmount(), timestamp, now);
+		transactionStore.append(transaction.getAmount(), timestamp, now);
+		transactionJournal.append(transaction.getAmount(), timestamp);
+		acceptedCounter.increment();
 	}
 
 	/**
-	 * Triggered when a transaction has expired and removed from transaction
-	 * cache. Updates the Statistic.
+	 * Saves the transactions of a batch, or only a sample of them if the batch
+	 * is beyond the budget of the ingest. The batch is read in full before any
+	 * of it is saved, so a malformed batch leaves no id behind which would
+	 * turn its corrected retry into duplicates, is not stored and is not
+	 * journaled to be replayed after a restart.
 	 */
-	private void removedTransactionListener(Transaction transaction) {
-		writeLock.lock();
-		try {
-			statistic.substractTransaction(transaction, transactionCache);
-		} finally {
-			writeLock.unlock();
+	private BatchResult saveTransactions(Iterator<Transaction> transactions, boolean admitted) {
+		BatchResult result = new BatchResult();
+		List<Transaction> valid = new ArrayList<>();
+
+		while (transactions.hasNext()) {
+			Transaction transaction = transactions.next();
+			long milliSeconds = ChronoUnit.MILLIS.between(transaction.getTimestamp(), clock.instant());
+			if (milliSeconds < 0) {
+				result.addFutureDated();
+			} else if (milliSeconds >= cacheTimeInMilliSeconds) {
+				result.addOutdated();
+			} else if (!admitted && !ingestAdmission.isSampled()) {
+				result.addShed();
+			} else {
+				valid.add(transaction);
+			}
+		}
+
+		BucketRing batch = statisticWindow.newBatch();
+		List<Transaction> accepted = new ArrayList<>(valid.size());
+		long now = clock.millis();
+		for (Transaction transaction : valid) {
+			long timestamp = transaction.getTimestamp().toEpochMilli();
+			if (!transactionIdFilter.add(transaction.getId(), timestamp)) {
+				result.addDuplicate();
+			} else {
+				batch.add(transaction.getAmount(), timestamp, now);
+				accepted.add(transaction);
+				result.addAccepted();
+			}
+		}
+
+		statisticWindow.addAll(batch, now);
+		for (Transaction transaction : accepted) {
+			long timestamp = transaction.getTimestamp().toEpochMilli();
+			transactionStore.append(transaction.getAmount(), timestamp, now);
+			transactionJournal.append(transaction.getAmount(), timestamp);
+		}
+		acceptedCounter.increment(result.getAccepted());
+		outdatedCounter.increment(result.getOutdated());
+		futureDatedCounter.increment(result.getFutureDated());
+		duplicateCounter.increment(result.getDuplicate());
+		shedCounter.increment(result.getShed());
+		return result;
+	}
+
+	private Counter transactionCounter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("transactions.saved").description("Transactions posted, by result")
+				.tag("result", result).register(meterRegistry);
+	}
+
+	private long toConfiguredWindow(Duration window) {
+		long windowInMilliSeconds = window.toMillis();
+		for (long configured : statisticWindow.getWindows()) {
+			if (configured == windowInMilliSeconds) {
+				return windowInMilliSeconds;
+			}
 		}
+
+		throw new UnknownWindowException(window.toString());
+	}
+
+	private boolean isTransactionValid(Transaction transaction) {
+		long milliSeconds = ChronoUnit.MILLIS.between(transaction.getTimestamp(), clock.instant());
+		if (milliSeconds < 0) {
+			futureDatedCounter.increment();
+			throw new IllegalArgumentException("Transaction's date is in the future: " + transaction);
+		}
+
+		return milliSeconds >= 0 && milliSeconds < cacheTimeInMilliSeconds;
 	}
 }
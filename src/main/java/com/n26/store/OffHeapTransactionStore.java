@@ -0,0 +1,240 @@
+package com.n26.store;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.java.Log;
+
+/**
+ * {@link TransactionStore} keeping the transactions outside of the heap, in
+ * direct buffers of {@value #ENTRY_SIZE} bytes per transaction.
+ * <p>
+ * Transactions are appended to chunks in the order they arrive. A chunk is
+ * columnar: its first half holds the timestamps and its second half the
+ * amounts, scaled to a long. Each chunk remembers its newest timestamp, so a
+ * scan skips the chunks whose transactions are all out of the window, and a
+ * chunk is recycled for new transactions as soon as its newest transaction is
+ * out of the retention. The heap only holds one small object per chunk, a
+ * stored transaction leaves nothing behind on the heap, and scanning a
+ * transaction creates no object.
+ * <p>
+ * Like {@link com.n26.window.StripedStatisticWindow}, writers are spread over
+ * stripes, each with its own chunks and lock, claimed with a single
+ * compare-and-set. A scan locks one stripe after the other.
+ */
+@Log
+public class OffHeapTransactionStore implements TransactionStore {
+	static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+	private final int scale;
+	private final long retentionInMilliSeconds;
+	private final int chunkCapacity;
+	private final Stripe[] stripes;
+	private final int mask;
+
+	/**
+	 * @param retentionInMilliSeconds
+	 *            how long transactions are kept, the longest window
+	 * @param chunkSize
+	 *            size of a direct buffer in bytes
+	 * @param scale
+	 *            number of decimal places the amounts are rounded to
+	 * @param stripeCount
+	 *            number of stripes, rounded up to a power of two. Number of
+	 *            available processors is used if not positive.
+	 */
+	public OffHeapTransactionStore(long retentionInMilliSeconds, int chunkSize, int scale, int stripeCount) {
+		if (chunkSize < ENTRY_SIZE) {
+			throw new IllegalArgumentException("Chunks must have at least " + ENTRY_SIZE + " bytes: " + chunkSize);
+		}
+		if (stripeCount <= 0) {
+			stripeCount = Runtime.getRuntime().availableProcessors();
+		}
+
+		this.scale = scale;
+		this.retentionInMilliSeconds = retentionInMilliSeconds;
+		this.chunkCapacity = chunkSize / ENTRY_SIZE;
+
+		int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+		this.stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new Stripe();
+		}
+		this.mask = size - 1;
+	}
+
+	@Override
+	public void append(BigDecimal amount, long timestamp, long now) {
+		long scaledAmount;
+		try {
+			scaledAmount = amount.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+		} catch (ArithmeticException ex) {
+			log.warning("Amount too large to be stored: " + amount);
+			return;
+		}
+
+		int home = homeStripe();
+		for (int i = 0; i <= mask; i++) {
+			Stripe stripe = stripes[(home + i) & mask];
+			if (stripe.lock.tryLock()) {
+				try {
+					stripe.append(timestamp, scaledAmount, now);
+				} finally {
+					stripe.lock.unlock();
+				}
+				return;
+			}
+		}
+
+		// Every stripe is claimed, wait for the home stripe
+		Stripe stripe = stripes[home];
+		stripe.lock.lock();
+		try {
+			stripe.append(timestamp, scaledAmount, now);
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	@Override
+	public void scan(long fromInMilliSeconds, long now, TransactionVisitor visitor) {
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.expire(now);
+				for (Chunk chunk : stripe.chunks) {
+					if (chunk.newestTimestamp >= fromInMilliSeconds) {
+						chunk.scan(fromInMilliSeconds, visitor);
+					}
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int getScale() {
+		return scale;
+	}
+
+	@Override
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				while (!stripe.chunks.isEmpty()) {
+					stripe.recycle(stripe.chunks.pollFirst());
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return number of direct buffers holding transactions
+	 */
+	public int getChunkCount() {
+		int count = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				count += stripe.chunks.size();
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return count;
+	}
+
+	private int homeStripe() {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * Chunks of a stripe, oldest first, together with the recycled ones.
+	 * Guarded by its lock.
+	 */
+	private final class Stripe {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+		private final ArrayDeque<Chunk> recycled = new ArrayDeque<>();
+
+		void append(long timestamp, long scaledAmount, long now) {
+			Chunk last = chunks.peekLast();
+			if (last == null || last.size == chunkCapacity) {
+				expire(now);
+				last = recycled.isEmpty() ? new Chunk(chunkCapacity) : recycled.pollFirst();
+				chunks.addLast(last);
+			}
+			last.append(timestamp, scaledAmount);
+		}
+
+		/**
+		 * Recycles the oldest chunks while all their transactions are out of
+		 * the retention
+		 */
+		void expire(long now) {
+			long expiredBefore = now - retentionInMilliSeconds + 1;
+			while (!chunks.isEmpty() && chunks.peekFirst().newestTimestamp < expiredBefore
+					&& chunks.peekFirst() != chunks.peekLast()) {
+				recycle(chunks.pollFirst());
+			}
+		}
+
+		/**
+		 * Keeps a chunk for reuse, unless as many chunks are already kept as
+		 * are in use, so the buffers of a burst are eventually freed
+		 */
+		void recycle(Chunk chunk) {
+			if (recycled.size() <= chunks.size()) {
+				chunk.reset();
+				recycled.addLast(chunk);
+			}
+		}
+	}
+
+	/**
+	 * Direct buffer of a fixed number of transactions, timestamps first
+	 */
+	private static final class Chunk {
+		private final ByteBuffer buffer;
+		private final int amountsOffset;
+		private int size;
+		private long newestTimestamp = Long.MIN_VALUE;
+
+		Chunk(int capacity) {
+			this.buffer = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE).order(ByteOrder.nativeOrder());
+			this.amountsOffset = capacity * Long.BYTES;
+		}
+
+		void append(long timestamp, long scaledAmount) {
+			buffer.putLong(size * Long.BYTES, timestamp);
+			buffer.putLong(amountsOffset + size * Long.BYTES, scaledAmount);
+			size++;
+			newestTimestamp = Math.max(newestTimestamp, timestamp);
+		}
+
+		void scan(long fromInMilliSeconds, TransactionVisitor visitor) {
+			for (int i = 0; i < size; i++) {
+				long timestamp = buffer.getLong(i * Long.BYTES);
+				if (timestamp >= fromInMilliSeconds) {
+					visitor.visit(timestamp, buffer.getLong(amountsOffset + i * Long.BYTES));
+				}
+			}
+		}
+
+		void reset() {
+			size = 0;
+			newestTimestamp = Long.MIN_VALUE;
+		}
+	}
+}
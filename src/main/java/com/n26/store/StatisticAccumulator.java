@@ -0,0 +1,48 @@
+package com.n26.store;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.n26.model.Statistic;
+import com.n26.store.TransactionStore.TransactionVisitor;
+
+/**
+ * Aggregates the scaled amounts of a scan into primitives, so visiting a
+ * transaction creates no object. Only a sum overflowing a long is carried
+ * over into a {@link BigInteger}.
+ */
+class StatisticAccumulator implements TransactionVisitor {
+	private final int scale;
+
+	private long count;
+	private long sum;
+	private BigInteger carry = BigInteger.ZERO;
+	private long max = Long.MIN_VALUE;
+	private long min = Long.MAX_VALUE;
+
+	StatisticAccumulator(int scale) {
+		this.scale = scale;
+	}
+
+	@Override
+	public void visit(long timestamp, long scaledAmount) {
+		count++;
+		try {
+			sum = Math.addExact(sum, scaledAmount);
+		} catch (ArithmeticException ex) {
+			carry = carry.add(BigInteger.valueOf(sum));
+			sum = scaledAmount;
+		}
+		max = Math.max(max, scaledAmount);
+		min = Math.min(min, scaledAmount);
+	}
+
+	Statistic toStatistic() {
+		if (count == 0) {
+			return new Statistic();
+		}
+
+		BigDecimal total = new BigDecimal(carry.add(BigInteger.valueOf(sum)), scale);
+		return new Statistic(total, BigDecimal.valueOf(max, scale), BigDecimal.valueOf(min, scale), count);
+	}
+}
@@ -0,0 +1,31 @@
+package com.n26.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.n26.window.StatisticWindow;
+
+/**
+ * Creates the {@link TransactionStore}. With store.enabled, the accepted
+ * transactions of the longest window are kept off the heap in direct buffers
+ * of store.chunk.size.in.bytes, with their amounts rounded to
+ * statistic.scale decimal places, and their exact statistic is served by GET
+ * /statistics/exact.
+ */
+@Configuration
+public class StoreConfig {
+
+	@Bean
+	public TransactionStore transactionStore(StatisticWindow statisticWindow,
+			@Value("${store.enabled:false}") boolean enabled,
+			@Value("${store.chunk.size.in.bytes:262144}") int chunkSize,
+			@Value("${statistic.scale:2}") int scale, @Value("${ingest.stripes:0}") int stripes) {
+		if (!enabled) {
+			return TransactionStore.NONE;
+		}
+
+		long[] windows = statisticWindow.getWindows();
+		return new OffHeapTransactionStore(windows[windows.length - 1], chunkSize, scale, stripes);
+	}
+}
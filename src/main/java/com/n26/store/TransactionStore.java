@@ -0,0 +1,101 @@
+package com.n26.store;
+
+import java.math.BigDecimal;
+
+import com.n26.model.Statistic;
+
+/**
+ * Store of the individual transactions of the longest window, kept as pairs
+ * of epoch milliseconds and scaled amount
+ */
+public interface TransactionStore {
+	/**
+	 * Store which keeps nothing
+	 */
+	TransactionStore NONE = new TransactionStore() {
+		@Override
+		public void append(BigDecimal amount, long timestamp, long now) {
+		}
+
+		@Override
+		public void scan(long fromInMilliSeconds, long now, TransactionVisitor visitor) {
+		}
+
+		@Override
+		public int getScale() {
+			return 0;
+		}
+
+		@Override
+		public void clear() {
+		}
+	};
+
+	/**
+	 * Keeps an accepted transaction until it is out of the longest window. The
+	 * amount is rounded half up to {@link #getScale()} decimal places, and a
+	 * transaction whose scaled amount does not fit into a long is not kept.
+	 *
+	 * @param amount
+	 *            amount of the transaction
+	 * @param timestamp
+	 *            epoch milliseconds of the transaction
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	void append(BigDecimal amount, long timestamp, long now);
+
+	/**
+	 * Visits every kept transaction whose timestamp is at or after the given
+	 * time, in no particular order
+	 *
+	 * @param fromInMilliSeconds
+	 *            epoch milliseconds, inclusive
+	 * @param now
+	 *            current epoch milliseconds
+	 * @param visitor
+	 *            {@link TransactionVisitor}
+	 */
+	void scan(long fromInMilliSeconds, long now, TransactionVisitor visitor);
+
+	/**
+	 * @return number of decimal places of the scaled amounts
+	 */
+	int getScale();
+
+	/**
+	 * Discards every kept transaction.
+	 */
+	void clear();
+
+	/**
+	 * Calculates the exact statistic of the transactions of the last given
+	 * milliseconds, without the early expiry of the buckets
+	 *
+	 * @param windowInMilliSeconds
+	 *            length of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return {@link Statistic}
+	 */
+	default Statistic getStatistic(long windowInMilliSeconds, long now) {
+		StatisticAccumulator accumulator = new StatisticAccumulator(getScale());
+		scan(now - windowInMilliSeconds + 1, now, accumulator);
+		return accumulator.toStatistic();
+	}
+
+	/**
+	 * Receives the kept transactions of a scan
+	 */
+	@FunctionalInterface
+	interface TransactionVisitor {
+		/**
+		 * @param timestamp
+		 *            epoch milliseconds of the transaction
+		 * @param scaledAmount
+		 *            amount of the transaction, scaled by
+		 *            {@link TransactionStore#getScale()} decimal places
+		 */
+		void visit(long timestamp, long scaledAmount);
+	}
+}
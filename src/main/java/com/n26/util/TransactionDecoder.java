@@ -0,0 +1,329 @@
+package com.n26.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.model.Transaction;
+
+/**
+ * Decoder of a single JSON encoded {@link Transaction}.
+ * <p>
+ * The usual payload, an object with only an amount, an ISO-8601 UTC timestamp
+ * and optionally an id, is parsed straight from the bytes: the amount into an
+ * unscaled long and a scale, and the timestamp into epoch seconds and
+ * nanoseconds, without building tokens, strings other than the id or a
+ * formatter. Any other payload, such as a malformed body, escaped or unknown
+ * fields, a missing field, a number with an exponent or a timestamp with an
+ * offset, is handed over to the {@link ObjectMapper}. It then decodes it, or
+ * fails with the same exception as before, so the status codes of invalid
+ * transactions do not change.
+ */
+public class TransactionDecoder {
+	private static final byte[] AMOUNT = { 'a', 'm', 'o', 'u', 'n', 't' };
+	private static final byte[] TIMESTAMP = { 't', 'i', 'm', 'e', 's', 't', 'a', 'm', 'p' };
+	private static final byte[] ID = { 'i', 'd' };
+
+	/**
+	 * Most digits of an unscaled amount which always fit into a long
+	 */
+	private static final int MAX_DIGITS = 18;
+	private static final int MAX_FRACTION_DIGITS = 9;
+	private static final int[] DAYS_BEFORE_MONTH = { 0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334 };
+	private static final long DAYS_FROM_0000_TO_1970 = 719528;
+
+	private final ObjectMapper objectMapper;
+
+	public TransactionDecoder(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Decodes the transaction
+	 *
+	 * @param bytes
+	 *            UTF-8 encoded JSON
+	 * @param length
+	 *            number of bytes to decode
+	 * @return {@link Transaction}
+	 * @throws IOException
+	 *             thrown by the {@link ObjectMapper} if the JSON is malformed
+	 *             or a field can not be mapped
+	 */
+	public Transaction decode(byte[] bytes, int length) throws IOException {
+		Transaction transaction = new Parser(bytes, length).parse();
+		if (transaction != null) {
+			return transaction;
+		}
+
+		return objectMapper.readValue(bytes, 0, length, Transaction.class);
+	}
+
+	/**
+	 * Single use parser of the usual payload
+	 */
+	private static final class Parser {
+		private final byte[] bytes;
+		private final int length;
+		private int position;
+
+		private BigDecimal amount;
+		private Instant timestamp;
+		private String id;
+
+		private Parser(byte[] bytes, int length) {
+			this.bytes = bytes;
+			this.length = length;
+		}
+
+		/**
+		 * @return the {@link Transaction}, or null if the payload is not the
+		 *         usual one
+		 */
+		private Transaction parse() {
+			if (!skipTo('{')) {
+				return null;
+			}
+
+			do {
+				if (!skipTo('"') || !parseField() || position == length) {
+					return null;
+				}
+				skipWhitespace();
+			} while (position < length && bytes[position++] == ',');
+
+			if (bytes[position - 1] != '}' || amount == null || timestamp == null) {
+				return null;
+			}
+
+			skipWhitespace();
+			if (position != length) {
+				return null;
+			}
+
+			Transaction transaction = new Transaction();
+			transaction.setAmount(amount);
+			transaction.setTimestamp(timestamp);
+			transaction.setId(id);
+			return transaction;
+		}
+
+		private boolean parseField() {
+			int start = position;
+			while (position < length && bytes[position] != '"' && bytes[position] != '\\') {
+				position++;
+			}
+			if (position == length || bytes[position] == '\\') {
+				return false;
+			}
+
+			int end = position++;
+			if (!skipTo(':')) {
+				return false;
+			}
+			skipWhitespace();
+
+			if (isKey(AMOUNT, start, end) && amount == null) {
+				return parseAmount();
+			}
+			if (isKey(TIMESTAMP, start, end) && timestamp == null) {
+				return parseTimestamp();
+			}
+			if (isKey(ID, start, end) && id == null) {
+				return parseId();
+			}
+			return false;
+		}
+
+		/**
+		 * Parses an id given as a JSON string of ASCII characters without
+		 * escapes
+		 */
+		private boolean parseId() {
+			if (position == length || bytes[position++] != '"') {
+				return false;
+			}
+
+			int start = position;
+			while (position < length && bytes[position] != '"') {
+				if (bytes[position] == '\\' || bytes[position] < ' ') {
+					return false;
+				}
+				position++;
+			}
+			if (position == length) {
+				return false;
+			}
+
+			id = new String(bytes, start, position++ - start, StandardCharsets.US_ASCII);
+			return true;
+		}
+
+		/**
+		 * Parses an amount given as a JSON string or number in plain decimal
+		 * notation
+		 */
+		private boolean parseAmount() {
+			boolean quoted = position < length && bytes[position] == '"';
+			if (quoted) {
+				position++;
+			}
+
+			boolean negative = position < length && bytes[position] == '-';
+			if (negative) {
+				position++;
+			}
+
+			int start = position;
+			long unscaled = 0;
+			int digits = 0;
+			int scale = -1;
+			for (; position < length; position++) {
+				byte b = bytes[position];
+				if (b >= '0' && b <= '9') {
+					unscaled = unscaled * 10 + (b - '0');
+					digits++;
+					if (scale >= 0) {
+						scale++;
+					}
+				} else if (b == '.' && scale < 0 && position > start) {
+					scale = 0;
+				} else {
+					break;
+				}
+			}
+
+			if (digits == 0 || digits > MAX_DIGITS || scale == 0) {
+				return false;
+			}
+			if (!quoted && bytes[start] == '0' && position > start + 1 && bytes[start + 1] != '.') {
+				// Leading zeros are not valid JSON
+				return false;
+			}
+			if (quoted && (position == length || bytes[position++] != '"')) {
+				return false;
+			}
+
+			amount = BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+			return true;
+		}
+
+		/**
+		 * Parses a timestamp given as a JSON string in the format
+		 * yyyy-MM-ddTHH:mm:ss[.fraction]Z
+		 */
+		private boolean parseTimestamp() {
+			if (length - position < 22 || bytes[position] != '"' || bytes[position + 5] != '-'
+					|| bytes[position + 8] != '-' || bytes[position + 11] != 'T' || bytes[position + 14] != ':'
+					|| bytes[position + 17] != ':') {
+				return false;
+			}
+
+			int year = digits(position + 1, 4);
+			int month = digits(position + 6, 2);
+			int day = digits(position + 9, 2);
+			int hour = digits(position + 12, 2);
+			int minute = digits(position + 15, 2);
+			int second = digits(position + 18, 2);
+			if (year < 1 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+					|| hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+				return false;
+			}
+
+			position += 20;
+			int nanos = 0;
+			if (bytes[position] == '.') {
+				int start = ++position;
+				while (position < length && bytes[position] >= '0' && bytes[position] <= '9') {
+					nanos = nanos * 10 + (bytes[position++] - '0');
+				}
+
+				int fractionDigits = position - start;
+				if (fractionDigits == 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+					return false;
+				}
+				for (int i = fractionDigits; i < MAX_FRACTION_DIGITS; i++) {
+					nanos *= 10;
+				}
+			}
+
+			if (length - position < 2 || bytes[position] != 'Z' || bytes[position + 1] != '"') {
+				return false;
+			}
+			position += 2;
+
+			long epochDay = epochDay(year, month, day);
+			timestamp = Instant.ofEpochSecond(epochDay * 86400 + hour * 3600 + minute * 60 + second, nanos);
+			return true;
+		}
+
+		/**
+		 * @return value of the given number of decimal digits, or -1 if there
+		 *         is any other character
+		 */
+		private int digits(int from, int count) {
+			int value = 0;
+			for (int i = from; i < from + count; i++) {
+				byte b = bytes[i];
+				if (b < '0' || b > '9') {
+					return -1;
+				}
+				value = value * 10 + (b - '0');
+			}
+			return value;
+		}
+
+		private boolean isKey(byte[] key, int start, int end) {
+			if (end - start != key.length) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (bytes[start + i] != key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Skips whitespace and the expected character
+		 *
+		 * @return false if another character was found
+		 */
+		private boolean skipTo(char expected) {
+			skipWhitespace();
+			return position < length && bytes[position++] == expected;
+		}
+
+		private void skipWhitespace() {
+			while (position < length && (bytes[position] == ' ' || bytes[position] == '\n' || bytes[position] == '\r'
+					|| bytes[position] == '\t')) {
+				position++;
+			}
+		}
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if (month == 2) {
+			return isLeapYear(year) ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	/**
+	 * Days since 1970-01-01 of a date of the proleptic Gregorian calendar from
+	 * the year 1 on
+	 */
+	private static long epochDay(int year, int month, int day) {
+		int previousYear = year - 1;
+		long days = 365L * year + previousYear / 4 - previousYear / 100 + previousYear / 400 + 1;
+		days += DAYS_BEFORE_MONTH[month - 1] + (month > 2 && isLeapYear(year) ? 1 : 0) + day - 1;
+		return days - DAYS_FROM_0000_TO_1970;
+	}
+}
@@ -0,0 +1,81 @@
+package com.n26.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.exception.MalformedTransactionBatchException;
+import com.n26.model.Transaction;
+
+/**
+ * Iterator over the transactions of a JSON array or of newline delimited JSON
+ * objects. Transactions are read from the stream one by one, so the whole
+ * batch is never held in memory. Items which can not be mapped to a
+ * {@link Transaction}, or which lack a field, are skipped and counted as
+ * invalid.
+ */
+public class TransactionStreamReader implements Iterator<Transaction> {
+	private final ObjectMapper objectMapper;
+	private final MappingIterator<JsonNode> nodes;
+	private long invalidCount;
+	private Transaction next;
+
+	public TransactionStreamReader(ObjectMapper objectMapper, InputStream inputStream) {
+		this.objectMapper = objectMapper;
+		try {
+			this.nodes = objectMapper.readerFor(JsonNode.class).readValues(inputStream);
+		} catch (IOException ex) {
+			throw new MalformedTransactionBatchException(ex);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			while (next == null && nodes.hasNextValue()) {
+				next = toTransaction(nodes.nextValue());
+			}
+		} catch (IOException ex) {
+			throw new MalformedTransactionBatchException(ex);
+		}
+
+		return next != null;
+	}
+
+	@Override
+	public Transaction next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		Transaction transaction = next;
+		next = null;
+		return transaction;
+	}
+
+	/**
+	 * Number of items skipped so far
+	 */
+	public long getInvalidCount() {
+		return invalidCount;
+	}
+
+	private Transaction toTransaction(JsonNode node) {
+		try {
+			Transaction transaction = objectMapper.treeToValue(node, Transaction.class);
+			if (transaction != null && transaction.getAmount() != null && transaction.getTimestamp() != null) {
+				return transaction;
+			}
+		} catch (JsonProcessingException ex) {
+			// Counted as invalid below
+		}
+
+		invalidCount++;
+		return null;
+	}
+}
@@ -0,0 +1,308 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+
+import com.n26.model.Statistic;
+
+import lombok.ToString;
+
+/**
+ * Pre-aggregated values of the transactions that fall into one time slice of
+ * the window. A bucket is identified by the index of its time slice
+ * (timestamp / bucket time), and is reused once that slice has expired.
+ * <p>
+ * When created with a fixed-point scale, amounts are kept as long values
+ * scaled by that many decimal places, thus the sum, max and min are updated
+ * without allocating new BigDecimals. The bucket falls back to BigDecimal
+ * values as soon as an amount has more decimal places than the scale or a
+ * long value overflows.
+ * <p>
+ * The {@link Moments} of the amounts, for the variance, are only carried by
+ * aggregates: {@link #add(BigDecimal)} leaves them alone, since a
+ * {@link BucketRing} keeps the moments of its buckets itself, while merging
+ * buckets merges them.
+ */
+@ToString
+public class Bucket {
+	/**
+	 * Scale of a bucket which always keeps BigDecimal values
+	 */
+	public static final int NO_FIXED_POINT = -1;
+
+	private final int scale;
+
+	private long id;
+	private long count;
+
+	private boolean fixedPoint;
+	private long scaledSum;
+	private long scaledMax;
+	private long scaledMin;
+
+	private BigDecimal sum;
+	private BigDecimal max;
+	private BigDecimal min;
+
+	private final Moments moments = new Moments();
+
+	public Bucket() {
+		this(NO_FIXED_POINT);
+	}
+
+	/**
+	 * @param scale
+	 *            number of decimal places of the fixed-point values, or
+	 *            {@link #NO_FIXED_POINT}
+	 */
+	public Bucket(int scale) {
+		this.scale = scale;
+		reset(Long.MIN_VALUE);
+	}
+
+	/**
+	 * Empties the bucket and assigns it to the given time slice
+	 *
+	 * @param id
+	 *            index of the time slice
+	 */
+	public void reset(long id) {
+		this.id = id;
+		this.count = 0;
+		this.fixedPoint = scale != NO_FIXED_POINT;
+		this.scaledSum = 0;
+		this.scaledMax = 0;
+		this.scaledMin = 0;
+		this.sum = null;
+		this.max = null;
+		this.min = null;
+		this.moments.reset();
+	}
+
+	/**
+	 * Adds the given amount to the aggregated values of the bucket
+	 *
+	 * @param amount
+	 *            amount of the transaction
+	 */
+	public void add(BigDecimal amount) {
+		if (fixedPoint) {
+			try {
+				addScaled(amount.movePointRight(scale).longValueExact());
+				return;
+			} catch (ArithmeticException ex) {
+				// Not representable as a scaled long
+				inflate();
+			}
+		}
+
+		if (count == 0) {
+			sum = amount;
+			max = amount;
+			min = amount;
+		} else {
+			sum = sum.add(amount);
+			max = max.max(amount);
+			min = min.min(amount);
+		}
+		count++;
+	}
+
+	/**
+	 * Adds the aggregated values of another bucket to this bucket
+	 *
+	 * @param other
+	 *            {@link Bucket}
+	 */
+	public void merge(Bucket other) {
+		if (other.count == 0) {
+			return;
+		}
+
+		moments.merge(other.moments);
+		if (fixedPoint && other.fixedPoint && scale == other.scale) {
+			if (count == 0) {
+				scaledSum = other.scaledSum;
+				scaledMax = other.scaledMax;
+				scaledMin = other.scaledMin;
+				count = other.count;
+				return;
+			}
+
+			try {
+				scaledSum = Math.addExact(scaledSum, other.scaledSum);
+				scaledMax = Math.max(scaledMax, other.scaledMax);
+				scaledMin = Math.min(scaledMin, other.scaledMin);
+				count += other.count;
+				return;
+			} catch (ArithmeticException ex) {
+				inflate();
+			}
+		} else if (fixedPoint) {
+			inflate();
+		}
+
+		if (count == 0) {
+			sum = other.getSum();
+			max = other.getMax();
+			min = other.getMin();
+		} else {
+			sum = sum.add(other.getSum());
+			max = max.max(other.getMax());
+			min = min.min(other.getMin());
+		}
+		count += other.count;
+	}
+
+	/**
+	 * Removes the sum and count of another bucket from this bucket. Max, min
+	 * and moments are left as they are, since they can not be restored by
+	 * subtraction.
+	 *
+	 * @param other
+	 *            {@link Bucket} which has been merged into this bucket before
+	 */
+	public void subtract(Bucket other) {
+		if (other.count == 0) {
+			return;
+		}
+
+		count -= other.count;
+		if (count == 0) {
+			reset(id);
+			return;
+		}
+
+		if (fixedPoint && other.fixedPoint && scale == other.scale) {
+			try {
+				scaledSum = Math.subtractExact(scaledSum, other.scaledSum);
+				return;
+			} catch (ArithmeticException ex) {
+				inflate();
+			}
+		} else if (fixedPoint) {
+			inflate();
+		}
+
+		sum = sum.subtract(other.getSum());
+	}
+
+	/**
+	 * Replaces max and min of this bucket with the ones of the given buckets
+	 *
+	 * @param maxBucket
+	 *            {@link Bucket} holding the max
+	 * @param minBucket
+	 *            {@link Bucket} holding the min
+	 */
+	public void setExtremes(Bucket maxBucket, Bucket minBucket) {
+		if (fixedPoint && maxBucket.fixedPoint && minBucket.fixedPoint && scale == maxBucket.scale
+				&& scale == minBucket.scale) {
+			scaledMax = maxBucket.scaledMax;
+			scaledMin = minBucket.scaledMin;
+			return;
+		}
+
+		if (fixedPoint) {
+			inflate();
+		}
+		max = maxBucket.getMax();
+		min = minBucket.getMin();
+	}
+
+	/**
+	 * Replaces the moments of this bucket with the given ones
+	 *
+	 * @param moments
+	 *            {@link Moments} of the same amounts
+	 */
+	void setMoments(Moments moments) {
+		this.moments.set(moments);
+	}
+
+	/**
+	 * Compares the max of this bucket with the max of another bucket
+	 *
+	 * @param other
+	 *            non empty {@link Bucket}
+	 * @return negative, zero or positive as this max is less than, equal to or
+	 *         greater than the other max
+	 */
+	public int compareMax(Bucket other) {
+		if (fixedPoint && other.fixedPoint && scale == other.scale) {
+			return Long.compare(scaledMax, other.scaledMax);
+		}
+
+		return getMax().compareTo(other.getMax());
+	}
+
+	/**
+	 * Compares the min of this bucket with the min of another bucket
+	 *
+	 * @param other
+	 *            non empty {@link Bucket}
+	 * @return negative, zero or positive as this min is less than, equal to or
+	 *         greater than the other min
+	 */
+	public int compareMin(Bucket other) {
+		if (fixedPoint && other.fixedPoint && scale == other.scale) {
+			return Long.compare(scaledMin, other.scaledMin);
+		}
+
+		return getMin().compareTo(other.getMin());
+	}
+
+	/**
+	 * Creates a Statistic from the aggregated values of the bucket
+	 *
+	 * @return {@link Statistic}
+	 */
+	public Statistic toStatistic() {
+		Statistic statistic = count == 0 ? new Statistic() : new Statistic(getSum(), getMax(), getMin(), count);
+		return statistic.withVariance(moments.getVariance());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public BigDecimal getSum() {
+		return fixedPoint && count > 0 ? BigDecimal.valueOf(scaledSum, scale) : sum;
+	}
+
+	public BigDecimal getMax() {
+		return fixedPoint && count > 0 ? BigDecimal.valueOf(scaledMax, scale) : max;
+	}
+
+	public BigDecimal getMin() {
+		return fixedPoint && count > 0 ? BigDecimal.valueOf(scaledMin, scale) : min;
+	}
+
+	private void addScaled(long amount) {
+		if (count == 0) {
+			scaledSum = amount;
+			scaledMax = amount;
+			scaledMin = amount;
+		} else {
+			scaledSum = Math.addExact(scaledSum, amount);
+			scaledMax = Math.max(scaledMax, amount);
+			scaledMin = Math.min(scaledMin, amount);
+		}
+		count++;
+	}
+
+	/**
+	 * Switches the bucket to BigDecimal values
+	 */
+	private void inflate() {
+		if (count > 0) {
+			sum = BigDecimal.valueOf(scaledSum, scale);
+			max = BigDecimal.valueOf(scaledMax, scale);
+			min = BigDecimal.valueOf(scaledMin, scale);
+		}
+		fixedPoint = false;
+	}
+}
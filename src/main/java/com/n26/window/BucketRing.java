@@ -0,0 +1,544 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import com.n26.model.Statistic;
+
+/**
+ * Fixed size ring of {@link Bucket}s covering one or more sliding time windows
+ * of different lengths. Each bucket holds the pre-aggregated values of one
+ * time slice, so the memory used is constant regardless of the number of
+ * transactions. The ring is sized for the longest window and the shorter
+ * windows are made of its newest buckets.
+ * <p>
+ * Sum and count of every window are kept as running totals, max and min are
+ * kept in an {@link ExtremeTree} and the moments of the variance in a
+ * {@link MomentTree} over the buckets. Amounts are also counted in a
+ * {@link QuantileSketch} per bucket, and the sketch of every window is kept
+ * like its running totals. Adding a transaction or expiring a bucket takes at
+ * most O(log(number of buckets)) time per window.
+ * Calculating the statistic of the longest window takes O(1) time and of a
+ * shorter window O(log(number of buckets)) time.
+ * <p>
+ * A bucket is regarded as expired as soon as the start of its time slice is
+ * out of the window, thus a transaction may leave the window at most one
+ * bucket time earlier than its exact expiry time. Expired buckets are removed
+ * from the totals when the ring is advanced to the current time, see
+ * {@link #expire(long)}, and rolled up into the {@link StatisticArchive} once
+ * they have left the longest window.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BucketRing {
+	private final long[] windowsInMilliSeconds;
+	private final long bucketInMilliSeconds;
+	private final int scale;
+	private final Bucket[] buckets;
+	private final ExtremeTree extremeTree;
+
+	/**
+	 * Moments of the amounts of every bucket, merged in a tree for the
+	 * variance of the windows
+	 */
+	private final Moments[] moments;
+	private final MomentTree momentTree;
+
+	/**
+	 * Index of the longest window, which owns the buckets
+	 */
+	private final int longest;
+
+	/**
+	 * Running totals of every window
+	 */
+	private final Bucket[] totals;
+
+	/**
+	 * Buckets with a smaller id have been removed from the totals of the
+	 * window
+	 */
+	private final long[] minLiveIds;
+
+	/**
+	 * Epoch milliseconds from which on a bucket of some window has expired
+	 */
+	private long nextExpiryAt = Long.MIN_VALUE;
+
+	private final QuantileMapping quantileMapping;
+	private final QuantileSketch[] sketches;
+	private final QuantileSketch[] totalSketches;
+
+	/**
+	 * Number of non-empty buckets evicted from the longest window
+	 */
+	private long expiredBuckets;
+
+	private StatisticArchive archive = StatisticArchive.NONE;
+
+	public BucketRing(long windowInMilliSeconds, long bucketInMilliSeconds) {
+		this(windowInMilliSeconds, bucketInMilliSeconds, Bucket.NO_FIXED_POINT);
+	}
+
+	/**
+	 * @param windowInMilliSeconds
+	 * @param bucketInMilliSeconds
+	 * @param scale
+	 *            fixed-point scale of the buckets, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 */
+	public BucketRing(long windowInMilliSeconds, long bucketInMilliSeconds, int scale) {
+		this(new long[] { windowInMilliSeconds }, bucketInMilliSeconds, scale);
+	}
+
+	/**
+	 * @param windowsInMilliSeconds
+	 *            lengths of the windows, in ascending order. A window is
+	 *            referred to by its index in this array.
+	 * @param bucketInMilliSeconds
+	 * @param scale
+	 *            fixed-point scale of the buckets, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 */
+	public BucketRing(long[] windowsInMilliSeconds, long bucketInMilliSeconds, int scale) {
+		this(windowsInMilliSeconds, bucketInMilliSeconds, scale, QuantileMapping.DEFAULT_RELATIVE_ACCURACY);
+	}
+
+	/**
+	 * @param windowsInMilliSeconds
+	 *            lengths of the windows, in ascending order. A window is
+	 *            referred to by its index in this array.
+	 * @param bucketInMilliSeconds
+	 * @param scale
+	 *            fixed-point scale of the buckets, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 * @param quantileAccuracy
+	 *            relative accuracy of the quantiles
+	 */
+	public BucketRing(long[] windowsInMilliSeconds, long bucketInMilliSeconds, int scale, double quantileAccuracy) {
+		if (windowsInMilliSeconds.length == 0) {
+			throw new IllegalArgumentException("At least one window is required");
+		}
+		for (int i = 0; i < windowsInMilliSeconds.length; i++) {
+			if (windowsInMilliSeconds[i] <= 0 || bucketInMilliSeconds <= 0) {
+				throw new IllegalArgumentException("Window and bucket times must be positive");
+			}
+			if (i > 0 && windowsInMilliSeconds[i] <= windowsInMilliSeconds[i - 1]) {
+				throw new IllegalArgumentException("Windows must be distinct and in ascending order");
+			}
+		}
+
+		this.windowsInMilliSeconds = windowsInMilliSeconds.clone();
+		this.bucketInMilliSeconds = bucketInMilliSeconds;
+		this.scale = scale;
+		this.longest = windowsInMilliSeconds.length - 1;
+
+		// One extra bucket for the slice that is partly out of the window
+		long windowInMilliSeconds = windowsInMilliSeconds[longest];
+		int size = (int) ((windowInMilliSeconds + bucketInMilliSeconds - 1) / bucketInMilliSeconds) + 1;
+		this.buckets = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			buckets[i] = new Bucket(scale);
+		}
+		this.extremeTree = new ExtremeTree(buckets);
+		this.moments = new Moments[size];
+		for (int i = 0; i < size; i++) {
+			moments[i] = new Moments();
+		}
+		this.momentTree = new MomentTree(moments);
+
+		this.totals = new Bucket[windowsInMilliSeconds.length];
+		for (int i = 0; i < totals.length; i++) {
+			totals[i] = new Bucket(scale);
+		}
+		this.minLiveIds = new long[windowsInMilliSeconds.length];
+		Arrays.fill(minLiveIds, Long.MIN_VALUE);
+
+		this.quantileMapping = new QuantileMapping(quantileAccuracy);
+		this.sketches = new QuantileSketch[size];
+		for (int i = 0; i < size; i++) {
+			sketches[i] = new QuantileSketch(quantileMapping);
+		}
+		this.totalSketches = new QuantileSketch[windowsInMilliSeconds.length];
+		for (int i = 0; i < totalSketches.length; i++) {
+			totalSketches[i] = new QuantileSketch(quantileMapping);
+		}
+	}
+
+	/**
+	 * Adds an amount to the bucket of the given timestamp
+	 *
+	 * @param amount
+	 *            amount of the transaction
+	 * @param timestamp
+	 *            epoch milliseconds of the transaction
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return false if the bucket of the timestamp has already expired
+	 */
+	public boolean add(BigDecimal amount, long timestamp, long now) {
+		expire(now);
+
+		long id = Math.floorDiv(timestamp, bucketInMilliSeconds);
+		if (id < minLiveIds[longest]) {
+			return false;
+		}
+
+		int index = indexOf(id);
+		Bucket bucket = buckets[index];
+		if (bucket.getId() != id) {
+			// Previous time slice of this bucket is out of the window
+			evict(index);
+			bucket.reset(id);
+		}
+
+		double value = amount.doubleValue();
+		int key = quantileMapping.keyOf(value);
+		bucket.add(amount);
+		sketches[index].add(key);
+		moments[index].add(value);
+		for (int window = 0; window < totals.length; window++) {
+			if (id >= minLiveIds[window]) {
+				totals[window].add(amount);
+				totalSketches[window].add(key);
+			}
+		}
+		extremeTree.update(index);
+		momentTree.update(index);
+
+		return true;
+	}
+
+	/**
+	 * Merges the buckets of another ring with the same windows and bucket time
+	 * into this ring. Buckets which have already expired are ignored.
+	 *
+	 * @param other
+	 *            {@link BucketRing} created by {@link #emptyCopy()}
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	public void merge(BucketRing other, long now) {
+		if (other.bucketInMilliSeconds != bucketInMilliSeconds
+				|| !Arrays.equals(other.windowsInMilliSeconds, windowsInMilliSeconds)
+				|| other.quantileMapping.getRelativeAccuracy() != quantileMapping.getRelativeAccuracy()) {
+			throw new IllegalArgumentException("Bucket rings have different layouts");
+		}
+
+		expire(now);
+		for (int i = 0; i < other.buckets.length; i++) {
+			Bucket source = other.buckets[i];
+			if (source.getCount() == 0 || source.getId() < minLiveIds[longest]) {
+				continue;
+			}
+
+			int index = indexOf(source.getId());
+			Bucket bucket = buckets[index];
+			if (bucket.getId() != source.getId()) {
+				evict(index);
+				bucket.reset(source.getId());
+			}
+
+			bucket.merge(source);
+			sketches[index].merge(other.sketches[i]);
+			moments[index].merge(other.moments[i]);
+			for (int window = 0; window < totals.length; window++) {
+				if (source.getId() >= minLiveIds[window]) {
+					totals[window].merge(source);
+					totalSketches[window].merge(other.sketches[i]);
+				}
+			}
+			extremeTree.update(index);
+			momentTree.update(index);
+		}
+	}
+
+	/**
+	 * Checks whether any bucket has expired since the last time the ring was
+	 * advanced
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return true if {@link #expire(long)} has to be called before reading
+	 */
+	public boolean hasExpiredBuckets(long now) {
+		return now >= nextExpiryAt;
+	}
+
+	/**
+	 * Advances the ring to the given time, removing the buckets which are out
+	 * of a window from its totals. Each bucket leaves each window at most once,
+	 * thus the cost is amortized O(log(number of buckets)) per bucket and
+	 * window.
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	public void expire(long now) {
+		if (now < nextExpiryAt) {
+			return;
+		}
+
+		// Shorter windows first, the longest one resets the buckets
+		for (int window = 0; window < minLiveIds.length; window++) {
+			long minLiveId = minLiveIds[window];
+			long newMinLiveId = minLiveIdAt(window, now);
+			if (newMinLiveId <= minLiveId) {
+				continue;
+			}
+
+			// Consecutive ids visit every bucket once, so no need to look further
+			long from = Math.max(minLiveId, newMinLiveId - buckets.length);
+			for (long id = from; id < newMinLiveId; id++) {
+				int index = indexOf(id);
+				Bucket bucket = buckets[index];
+				if (bucket.getCount() == 0 || bucket.getId() < minLiveId || bucket.getId() >= newMinLiveId) {
+					continue;
+				}
+
+				if (window == longest) {
+					evict(index);
+				} else {
+					totals[window].subtract(bucket);
+					totalSketches[window].subtract(sketches[index]);
+				}
+			}
+			minLiveIds[window] = newMinLiveId;
+		}
+
+		// A bucket leaves a window when its time slice starts a window length ago
+		nextExpiryAt = Long.MAX_VALUE;
+		for (int window = 0; window < minLiveIds.length; window++) {
+			nextExpiryAt = Math.min(nextExpiryAt,
+					minLiveIds[window] * bucketInMilliSeconds + windowsInMilliSeconds[window]);
+		}
+	}
+
+	/**
+	 * Returns the statistic of the buckets which are still in the longest
+	 * window
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return {@link Statistic}
+	 */
+	public Statistic getStatistic(long now) {
+		return getStatistic(longest, now);
+	}
+
+	/**
+	 * Returns the statistic of the buckets which are still in the given window
+	 *
+	 * @param window
+	 *            index of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return {@link Statistic}
+	 */
+	public Statistic getStatistic(int window, long now) {
+		Bucket accumulator = newAccumulator();
+		mergeInto(accumulator, window, now);
+
+		return accumulator.toStatistic();
+	}
+
+	/**
+	 * Merges the aggregated values of the buckets which are still in the given
+	 * window into the given bucket
+	 *
+	 * @param accumulator
+	 *            {@link Bucket} accumulating the values
+	 * @param window
+	 *            index of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	public void mergeInto(Bucket accumulator, int window, long now) {
+		expire(now);
+		accumulator.merge(readAggregate(window));
+	}
+
+	/**
+	 * Merges the aggregated values and the quantile sketch of the buckets which
+	 * are still in the given window into the given bucket and sketch
+	 *
+	 * @param accumulator
+	 *            {@link Bucket} accumulating the values
+	 * @param sketch
+	 *            {@link QuantileSketch} created by {@link #newQuantileSketch()}
+	 * @param window
+	 *            index of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	public void mergeQuantilesInto(Bucket accumulator, QuantileSketch sketch, int window, long now) {
+		mergeInto(accumulator, window, now);
+		sketch.merge(totalSketches[window]);
+	}
+
+	/**
+	 * Copies the aggregated values of the given window as of the last time the
+	 * ring was advanced. Only reads the ring and never fails even if the ring
+	 * is modified concurrently, thus may be used for optimistic reads whose
+	 * result is validated afterwards.
+	 *
+	 * @param window
+	 *            index of the window
+	 * @return {@link Bucket} holding the aggregated values
+	 */
+	public Bucket readAggregate(int window) {
+		Bucket aggregate = newAccumulator();
+
+		int maxIndex;
+		int minIndex;
+		Moments moments;
+		if (window == longest) {
+			maxIndex = extremeTree.maxIndex();
+			minIndex = extremeTree.minIndex();
+			moments = momentTree.moments();
+		} else {
+			// Every bucket but the ones of the older time slices of the longest window
+			long older = Math.min(Math.max(0, minLiveIds[window] - minLiveIds[longest]), buckets.length);
+			int from = indexOf(minLiveIds[window]);
+			int length = buckets.length - (int) older;
+			maxIndex = extremeTree.maxIndex(from, length);
+			minIndex = extremeTree.minIndex(from, length);
+			moments = momentTree.moments(from, length);
+		}
+		if (maxIndex < 0 || minIndex < 0) {
+			return aggregate;
+		}
+
+		aggregate.merge(totals[window]);
+		aggregate.setExtremes(buckets[maxIndex], buckets[minIndex]);
+		aggregate.setMoments(moments);
+		return aggregate;
+	}
+
+	/**
+	 * @param windowInMilliSeconds
+	 *            length of a window
+	 * @return index of the window, or -1 if the ring has no such window
+	 */
+	public int indexOfWindow(long windowInMilliSeconds) {
+		for (int window = 0; window < windowsInMilliSeconds.length; window++) {
+			if (windowsInMilliSeconds[window] == windowInMilliSeconds) {
+				return window;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Archives the buckets which leave the longest window from now on. Rings
+	 * created by {@link #emptyCopy()} do not archive anything, as their
+	 * buckets have never been in the window.
+	 *
+	 * @param archive
+	 *            {@link StatisticArchive}
+	 */
+	public void setArchive(StatisticArchive archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * @return number of non-empty buckets which have left the longest window
+	 */
+	public long getExpiredBuckets() {
+		return expiredBuckets;
+	}
+
+	/**
+	 * @return lengths of the windows, in ascending order
+	 */
+	public long[] getWindows() {
+		return windowsInMilliSeconds.clone();
+	}
+
+	/**
+	 * Creates an empty bucket with the scale of this ring, to merge buckets
+	 * into
+	 *
+	 * @return {@link Bucket}
+	 */
+	public Bucket newAccumulator() {
+		return new Bucket(scale);
+	}
+
+	/**
+	 * Creates an empty quantile sketch with the accuracy of this ring, to merge
+	 * sketches into
+	 *
+	 * @return {@link QuantileSketch}
+	 */
+	public QuantileSketch newQuantileSketch() {
+		return new QuantileSketch(quantileMapping);
+	}
+
+	/**
+	 * Creates an empty ring with the same windows, bucket time, scale and
+	 * quantile accuracy as this ring
+	 *
+	 * @return {@link BucketRing}
+	 */
+	public BucketRing emptyCopy() {
+		return new BucketRing(windowsInMilliSeconds, bucketInMilliSeconds, scale,
+				quantileMapping.getRelativeAccuracy());
+	}
+
+	/**
+	 * Empties all buckets
+	 */
+	public void clear() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i].reset(Long.MIN_VALUE);
+			sketches[i].clear();
+			moments[i].reset();
+		}
+		extremeTree.clear();
+		momentTree.clear();
+		for (int i = 0; i < totals.length; i++) {
+			totals[i].reset(Long.MIN_VALUE);
+			totalSketches[i].clear();
+		}
+	}
+
+	private void evict(int index) {
+		Bucket bucket = buckets[index];
+		if (bucket.getCount() == 0) {
+			return;
+		}
+
+		for (int window = 0; window < totals.length; window++) {
+			if (bucket.getId() >= minLiveIds[window]) {
+				totals[window].subtract(bucket);
+				totalSketches[window].subtract(sketches[index]);
+			}
+		}
+		bucket.setMoments(moments[index]);
+		archive.add(bucket, bucket.getId() * bucketInMilliSeconds);
+		bucket.reset(Long.MIN_VALUE);
+		sketches[index].clear();
+		moments[index].reset();
+		expiredBuckets++;
+		extremeTree.update(index);
+		momentTree.update(index);
+	}
+
+	private int indexOf(long id) {
+		return (int) Math.floorMod(id, (long) buckets.length);
+	}
+
+	/**
+	 * Smallest id of a bucket whose time slice starts within the given window
+	 *
+	 * @param window
+	 *            index of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return id of the oldest live bucket
+	 */
+	public long minLiveIdAt(int window, long now) {
+		return Math.floorDiv(now - windowsInMilliSeconds[window], bucketInMilliSeconds) + 1;
+	}
+}
@@ -0,0 +1,141 @@
+package com.n26.window;
+
+import java.util.Arrays;
+
+/**
+ * Segment tree over the buckets of a {@link BucketRing}, keeping the index of
+ * the bucket holding the max and the bucket holding the min for every range
+ * of buckets. Updating a bucket takes O(log(number of buckets)) time, the
+ * overall max and min are read in O(1) time and the max and min of a range of
+ * buckets in O(log(number of buckets)) time, regardless of the order in which
+ * buckets are filled and expired.
+ * <p>
+ * This class is not thread-safe.
+ */
+class ExtremeTree {
+	private static final int EMPTY = -1;
+
+	private final Bucket[] buckets;
+	private final int leafOffset;
+	private final int[] maxTree;
+	private final int[] minTree;
+
+	ExtremeTree(Bucket[] buckets) {
+		this.buckets = buckets;
+		this.leafOffset = Integer.highestOneBit(Math.max(1, buckets.length - 1)) << 1;
+		this.maxTree = new int[leafOffset * 2];
+		this.minTree = new int[leafOffset * 2];
+		clear();
+	}
+
+	/**
+	 * Recalculates the path from the given bucket to the root
+	 *
+	 * @param index
+	 *            index of the bucket whose values have changed
+	 */
+	void update(int index) {
+		int node = leafOffset + index;
+		int leaf = buckets[index].getCount() > 0 ? index : EMPTY;
+		maxTree[node] = leaf;
+		minTree[node] = leaf;
+
+		for (node >>= 1; node > 0; node >>= 1) {
+			maxTree[node] = maxOf(maxTree[2 * node], maxTree[2 * node + 1]);
+			minTree[node] = minOf(minTree[2 * node], minTree[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * @return index of the bucket holding the max, or -1 if all buckets are
+	 *         empty
+	 */
+	int maxIndex() {
+		return maxTree[1];
+	}
+
+	/**
+	 * @return index of the bucket holding the min, or -1 if all buckets are
+	 *         empty
+	 */
+	int minIndex() {
+		return minTree[1];
+	}
+
+	/**
+	 * @param from
+	 *            index of the first bucket of the range
+	 * @param length
+	 *            number of buckets in the range, which wraps around the end
+	 * @return index of the bucket holding the max of the range, or -1 if all
+	 *         buckets of the range are empty
+	 */
+	int maxIndex(int from, int length) {
+		int to = from + length;
+		if (to <= buckets.length) {
+			return query(maxTree, from, to, true);
+		}
+
+		return maxOf(query(maxTree, from, buckets.length, true), query(maxTree, 0, to - buckets.length, true));
+	}
+
+	/**
+	 * @param from
+	 *            index of the first bucket of the range
+	 * @param length
+	 *            number of buckets in the range, which wraps around the end
+	 * @return index of the bucket holding the min of the range, or -1 if all
+	 *         buckets of the range are empty
+	 */
+	int minIndex(int from, int length) {
+		int to = from + length;
+		if (to <= buckets.length) {
+			return query(minTree, from, to, false);
+		}
+
+		return minOf(query(minTree, from, buckets.length, false), query(minTree, 0, to - buckets.length, false));
+	}
+
+	void clear() {
+		Arrays.fill(maxTree, EMPTY);
+		Arrays.fill(minTree, EMPTY);
+	}
+
+	/**
+	 * Combines the nodes covering the buckets from (inclusive) to (exclusive)
+	 */
+	private int query(int[] tree, int from, int to, boolean max) {
+		int result = EMPTY;
+		for (int left = leafOffset + from, right = leafOffset + to; left < right; left >>= 1, right >>= 1) {
+			if ((left & 1) == 1) {
+				int node = tree[left++];
+				result = max ? maxOf(result, node) : minOf(result, node);
+			}
+			if ((right & 1) == 1) {
+				int node = tree[--right];
+				result = max ? maxOf(result, node) : minOf(result, node);
+			}
+		}
+		return result;
+	}
+
+	private int maxOf(int left, int right) {
+		if (left == EMPTY) {
+			return right;
+		} else if (right == EMPTY) {
+			return left;
+		}
+
+		return buckets[left].compareMax(buckets[right]) >= 0 ? left : right;
+	}
+
+	private int minOf(int left, int right) {
+		if (left == EMPTY) {
+			return right;
+		} else if (right == EMPTY) {
+			return left;
+		}
+
+		return buckets[left].compareMin(buckets[right]) <= 0 ? left : right;
+	}
+}
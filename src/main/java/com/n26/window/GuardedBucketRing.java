@@ -0,0 +1,238 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link BucketRing} guarded by a {@link StampedLock}. Writers hold the write
+ * lock. Readers first copy the aggregated values in optimistic read mode,
+ * which does not block writers nor other readers and is validated afterwards.
+ * A reader only takes the lock if a writer has interfered, or if buckets have
+ * expired since the ring was last advanced.
+ * <p>
+ * Writers that have to wait for the lock are timed, and the lock hold time is
+ * sampled for one in 64 writes, so an uncontended write only reads the clock
+ * when it is sampled.
+ */
+class GuardedBucketRing {
+	private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+	private final StampedLock lock = new StampedLock();
+	private final BucketRing bucketRing;
+	private final WindowMetrics metrics;
+
+	/**
+	 * Number of writes, guarded by the write lock
+	 */
+	private int writes;
+
+	GuardedBucketRing(BucketRing bucketRing, WindowMetrics metrics) {
+		this.bucketRing = bucketRing;
+		this.metrics = metrics;
+	}
+
+	void add(BigDecimal amount, long timestamp, long now) {
+		long stamp = writeLock();
+		try {
+			addLocked(amount, timestamp, now);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Adds the amount only if the write lock can be acquired with a single
+	 * compare-and-set
+	 *
+	 * @return false if the ring is held by another thread
+	 */
+	boolean tryAdd(BigDecimal amount, long timestamp, long now) {
+		long stamp = lock.tryWriteLock();
+		if (stamp == 0) {
+			return false;
+		}
+
+		try {
+			addLocked(amount, timestamp, now);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return true;
+	}
+
+	void merge(BucketRing batch, long now) {
+		long stamp = writeLock();
+		try {
+			bucketRing.merge(batch, now);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Applies several writes to the ring under a single hold of the write lock
+	 *
+	 * @param writes
+	 *            writes to the {@link BucketRing}
+	 */
+	void write(Consumer<BucketRing> writes) {
+		long stamp = writeLock();
+		try {
+			writes.accept(bucketRing);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Merges the aggregated values of a window of the ring into the given
+	 * bucket
+	 *
+	 * @param accumulator
+	 *            {@link Bucket} accumulating the values
+	 * @param window
+	 *            index of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return stamp of the optimistic read which can be validated later by
+	 *         {@link #isUnchangedSince(long)}, or 0 if the values were read
+	 *         under the lock
+	 */
+	long readInto(Bucket accumulator, int window, long now) {
+		for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				continue;
+			}
+
+			if (bucketRing.hasExpiredBuckets(now)) {
+				break;
+			}
+
+			Bucket aggregate = bucketRing.readAggregate(window);
+			if (lock.validate(stamp)) {
+				accumulator.merge(aggregate);
+				return stamp;
+			}
+		}
+
+		long stamp = lock.readLock();
+		try {
+			if (bucketRing.hasExpiredBuckets(now)) {
+				stamp = toWriteLock(stamp);
+			}
+			bucketRing.mergeInto(accumulator, window, now);
+		} finally {
+			lock.unlock(stamp);
+		}
+		return 0;
+	}
+
+	/**
+	 * Merges the aggregated values and the quantile sketch of a window of the
+	 * ring into the given bucket and sketch. Sketches are too large to be
+	 * copied optimistically, so they are always read under the lock.
+	 *
+	 * @param accumulator
+	 *            {@link Bucket} accumulating the values
+	 * @param sketch
+	 *            {@link QuantileSketch} accumulating the counts
+	 * @param window
+	 *            index of the window
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	void readQuantilesInto(Bucket accumulator, QuantileSketch sketch, int window, long now) {
+		long stamp = lock.readLock();
+		try {
+			if (bucketRing.hasExpiredBuckets(now)) {
+				stamp = toWriteLock(stamp);
+			}
+			bucketRing.mergeQuantilesInto(accumulator, sketch, window, now);
+		} finally {
+			lock.unlock(stamp);
+		}
+	}
+
+	/**
+	 * Advances the ring to the given time. Only takes the write lock if a
+	 * bucket has expired.
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	void expire(long now) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0 && !bucketRing.hasExpiredBuckets(now) && lock.validate(stamp)) {
+			return;
+		}
+
+		stamp = writeLock();
+		try {
+			bucketRing.expire(now);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @param stamp
+	 *            stamp returned by {@link #readInto(Bucket, int, long)}
+	 * @return true if no writer has acquired the ring since the stamp was
+	 *         issued
+	 */
+	boolean isUnchangedSince(long stamp) {
+		return stamp != 0 && lock.validate(stamp);
+	}
+
+	void clear() {
+		long stamp = lock.writeLock();
+		try {
+			bucketRing.clear();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	BucketRing getBucketRing() {
+		return bucketRing;
+	}
+
+	private long writeLock() {
+		long stamp = lock.tryWriteLock();
+		if (stamp != 0) {
+			return stamp;
+		}
+
+		long start = System.nanoTime();
+		stamp = lock.writeLock();
+		metrics.recordContendedWrite(System.nanoTime() - start);
+		return stamp;
+	}
+
+	private void addLocked(BigDecimal amount, long timestamp, long now) {
+		boolean added;
+		if ((++writes & WindowMetrics.HOLD_SAMPLE_MASK) == 0) {
+			long start = System.nanoTime();
+			added = bucketRing.add(amount, timestamp, now);
+			metrics.recordWriteHold(System.nanoTime() - start);
+		} else {
+			added = bucketRing.add(amount, timestamp, now);
+		}
+
+		if (!added) {
+			metrics.recordExpiredAmount();
+		}
+	}
+
+	private long toWriteLock(long readStamp) {
+		long stamp = lock.tryConvertToWriteLock(readStamp);
+		if (stamp != 0) {
+			return stamp;
+		}
+
+		lock.unlockRead(readStamp);
+		return lock.writeLock();
+	}
+}
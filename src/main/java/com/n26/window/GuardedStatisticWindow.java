@@ -0,0 +1,168 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.n26.model.Quantiles;
+import com.n26.model.Statistic;
+
+/**
+ * Base of the {@link StatisticWindow}s made of one or more
+ * {@link GuardedBucketRing}s.
+ * <p>
+ * The last calculated {@link Statistic} of every window, which is immutable,
+ * is published through a volatile reference together with the stamps of the
+ * rings it was read from. As long as no writer has touched any ring and no
+ * bucket boundary has passed, readers return the published statistic without
+ * reading the rings at all.
+ */
+abstract class GuardedStatisticWindow implements StatisticWindow {
+	protected final GuardedBucketRing[] rings;
+
+	private final WindowMetrics metrics;
+	private final AtomicReferenceArray<Snapshot> snapshots;
+
+	protected GuardedStatisticWindow(BucketRing[] bucketRings) {
+		this.rings = new GuardedBucketRing[bucketRings.length];
+		this.metrics = new WindowMetrics(rings);
+		for (int i = 0; i < bucketRings.length; i++) {
+			rings[i] = new GuardedBucketRing(bucketRings[i], metrics);
+		}
+		this.snapshots = new AtomicReferenceArray<>(bucketRings[0].getWindows().length);
+	}
+
+	@Override
+	public BucketRing newBatch() {
+		return rings[0].getBucketRing().emptyCopy();
+	}
+
+	@Override
+	public Statistic getStatistic(long now) {
+		return getStatistic(snapshots.length() - 1, now);
+	}
+
+	@Override
+	public Statistic getStatistic(long windowInMilliSeconds, long now) {
+		return getStatistic(indexOfWindow(windowInMilliSeconds), now);
+	}
+
+	@Override
+	public Quantiles getQuantiles(long windowInMilliSeconds, long now) {
+		int window = indexOfWindow(windowInMilliSeconds);
+
+		Bucket accumulator = rings[0].getBucketRing().newAccumulator();
+		QuantileSketch sketch = rings[0].getBucketRing().newQuantileSketch();
+		for (GuardedBucketRing ring : rings) {
+			ring.readQuantilesInto(accumulator, sketch, window, now);
+		}
+
+		if (accumulator.getCount() == 0) {
+			return new Quantiles();
+		}
+		return new Quantiles(getValueAt(sketch, 0.5, accumulator), getValueAt(sketch, 0.9, accumulator),
+				getValueAt(sketch, 0.99, accumulator), accumulator.getCount());
+	}
+
+	@Override
+	public void expire(long now) {
+		for (GuardedBucketRing ring : rings) {
+			ring.expire(now);
+		}
+	}
+
+	@Override
+	public void setArchive(StatisticArchive archive) {
+		for (GuardedBucketRing ring : rings) {
+			ring.write(bucketRing -> bucketRing.setArchive(archive));
+		}
+	}
+
+	@Override
+	public long[] getWindows() {
+		return rings[0].getBucketRing().getWindows();
+	}
+
+	@Override
+	public WindowMetrics getMetrics() {
+		return metrics;
+	}
+
+	private int indexOfWindow(long windowInMilliSeconds) {
+		int window = rings[0].getBucketRing().indexOfWindow(windowInMilliSeconds);
+		if (window < 0) {
+			throw new IllegalArgumentException("No window of " + windowInMilliSeconds + " milliseconds");
+		}
+		return window;
+	}
+
+	/**
+	 * Value of the quantile, bounded by the exact max and min of the window
+	 */
+	private BigDecimal getValueAt(QuantileSketch sketch, double quantile, Bucket aggregate) {
+		BigDecimal value = BigDecimal.valueOf(sketch.getValueAt(quantile));
+		return value.max(aggregate.getMin()).min(aggregate.getMax());
+	}
+
+	private Statistic getStatistic(int window, long now) {
+		long minLiveId = rings[0].getBucketRing().minLiveIdAt(window, now);
+
+		Snapshot current = snapshots.get(window);
+		if (current != null && current.isValid(rings, minLiveId)) {
+			metrics.recordSnapshotRead();
+			return current.statistic;
+		}
+
+		Bucket accumulator = rings[0].getBucketRing().newAccumulator();
+		long[] stamps = new long[rings.length];
+		boolean optimistic = true;
+		for (int i = 0; i < rings.length; i++) {
+			stamps[i] = rings[i].readInto(accumulator, window, now);
+			optimistic &= stamps[i] != 0;
+		}
+
+		Statistic statistic = accumulator.toStatistic();
+		if (optimistic) {
+			metrics.recordOptimisticRead();
+			snapshots.set(window, new Snapshot(statistic, stamps, minLiveId));
+		} else {
+			metrics.recordLockedRead();
+		}
+		return statistic;
+	}
+
+	@Override
+	public void clear() {
+		for (GuardedBucketRing ring : rings) {
+			ring.clear();
+		}
+	}
+
+	/**
+	 * Immutable statistic together with the state of the rings it was
+	 * calculated from
+	 */
+	private static final class Snapshot {
+		private final Statistic statistic;
+		private final long[] stamps;
+		private final long minLiveId;
+
+		private Snapshot(Statistic statistic, long[] stamps, long minLiveId) {
+			this.statistic = statistic;
+			this.stamps = stamps;
+			this.minLiveId = minLiveId;
+		}
+
+		private boolean isValid(GuardedBucketRing[] rings, long currentMinLiveId) {
+			if (minLiveId != currentMinLiveId) {
+				return false;
+			}
+
+			for (int i = 0; i < rings.length; i++) {
+				if (!rings[i].isUnchangedSince(stamps[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
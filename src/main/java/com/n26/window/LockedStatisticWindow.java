@@ -0,0 +1,41 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link StatisticWindow} made of a single {@link BucketRing}, which writers
+ * lock exclusively.
+ */
+public class LockedStatisticWindow extends GuardedStatisticWindow {
+
+	public LockedStatisticWindow(long windowInMilliSeconds, long bucketInMilliSeconds, int scale) {
+		this(new long[] { windowInMilliSeconds }, bucketInMilliSeconds, scale,
+				QuantileMapping.DEFAULT_RELATIVE_ACCURACY);
+	}
+
+	/**
+	 * @param windowsInMilliSeconds
+	 *            lengths of the windows, in ascending order
+	 * @param bucketInMilliSeconds
+	 * @param scale
+	 *            fixed-point scale of the buckets, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 * @param quantileAccuracy
+	 *            relative accuracy of the quantiles
+	 */
+	public LockedStatisticWindow(long[] windowsInMilliSeconds, long bucketInMilliSeconds, int scale,
+			double quantileAccuracy) {
+		super(new BucketRing[] {
+				new BucketRing(windowsInMilliSeconds, bucketInMilliSeconds, scale, quantileAccuracy) });
+	}
+
+	@Override
+	public void add(BigDecimal amount, long timestamp, long now) {
+		rings[0].add(amount, timestamp, now);
+	}
+
+	@Override
+	public void addAll(BucketRing batch, long now) {
+		rings[0].merge(batch, now);
+	}
+}
@@ -0,0 +1,93 @@
+package com.n26.window;
+
+/**
+ * Segment tree over the moments of the buckets of a {@link BucketRing},
+ * keeping the {@link Moments} of every range of buckets. A node merges the
+ * moments of its two children, so the moments of a window are never obtained
+ * by subtracting the ones of expired buckets. Updating a bucket takes
+ * O(log(number of buckets)) time, the moments of all buckets are read in O(1)
+ * time and the moments of a range of buckets in O(log(number of buckets))
+ * time.
+ * <p>
+ * This class is not thread-safe.
+ */
+class MomentTree {
+	private final Moments[] leaves;
+	private final int leafOffset;
+	private final Moments[] nodes;
+
+	/**
+	 * @param leaves
+	 *            moments of every bucket
+	 */
+	MomentTree(Moments[] leaves) {
+		this.leaves = leaves;
+		this.leafOffset = Integer.highestOneBit(Math.max(1, leaves.length - 1)) << 1;
+		this.nodes = new Moments[leafOffset * 2];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new Moments();
+		}
+	}
+
+	/**
+	 * Recalculates the path from the given bucket to the root
+	 *
+	 * @param index
+	 *            index of the bucket whose values have changed
+	 */
+	void update(int index) {
+		int node = leafOffset + index;
+		nodes[node].set(leaves[index]);
+
+		for (node >>= 1; node > 0; node >>= 1) {
+			nodes[node].set(nodes[2 * node]);
+			nodes[node].merge(nodes[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * @return moments of all buckets
+	 */
+	Moments moments() {
+		return nodes[1];
+	}
+
+	/**
+	 * @param from
+	 *            index of the first bucket of the range
+	 * @param length
+	 *            number of buckets in the range, which wraps around the end
+	 * @return moments of the buckets of the range
+	 */
+	Moments moments(int from, int length) {
+		Moments moments = new Moments();
+		int to = from + length;
+		if (to <= leaves.length) {
+			query(moments, from, to);
+		} else {
+			query(moments, from, leaves.length);
+			query(moments, 0, to - leaves.length);
+		}
+		return moments;
+	}
+
+	void clear() {
+		for (Moments node : nodes) {
+			node.reset();
+		}
+	}
+
+	/**
+	 * Merges the nodes covering the buckets from (inclusive) to (exclusive)
+	 */
+	private void query(Moments moments, int from, int to) {
+		for (int left = leafOffset + from, right = leafOffset + to; left < right; left >>= 1, right >>= 1) {
+			if ((left & 1) == 1) {
+				moments.merge(nodes[left++]);
+			}
+			if ((right & 1) == 1) {
+				moments.merge(nodes[--right]);
+			}
+		}
+	}
+}
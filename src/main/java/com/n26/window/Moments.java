@@ -0,0 +1,81 @@
+package com.n26.window;
+
+/**
+ * Count, mean and sum of squared deviations from the mean of amounts, from
+ * which their variance is derived. Amounts are added with the update of
+ * Welford and moments are merged with the pairwise update of Chan et al., so
+ * the variance stays accurate even when the amounts are large compared to
+ * their spread. Moments are never subtracted, since that would lose precision
+ * over time.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class Moments {
+	private long count;
+	private double mean;
+	private double squaredDeviations;
+
+	/**
+	 * Adds an amount to the moments
+	 *
+	 * @param value
+	 *            amount as a double
+	 */
+	void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		squaredDeviations += delta * (value - mean);
+	}
+
+	/**
+	 * Adds the moments of other amounts to these moments
+	 *
+	 * @param other
+	 *            {@link Moments}
+	 */
+	void merge(Moments other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			set(other);
+			return;
+		}
+
+		long total = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / total;
+		squaredDeviations += other.squaredDeviations + delta * delta * count / total * other.count;
+		count = total;
+	}
+
+	/**
+	 * Replaces these moments with a copy of the given ones
+	 *
+	 * @param other
+	 *            {@link Moments}
+	 */
+	void set(Moments other) {
+		count = other.count;
+		mean = other.mean;
+		squaredDeviations = other.squaredDeviations;
+	}
+
+	void reset() {
+		count = 0;
+		mean = 0;
+		squaredDeviations = 0;
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return population variance of the amounts, 0 if there are none
+	 */
+	double getVariance() {
+		return count == 0 ? 0 : Math.max(0, squaredDeviations / count);
+	}
+}
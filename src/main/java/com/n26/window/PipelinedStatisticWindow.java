@@ -0,0 +1,320 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.n26.model.Quantiles;
+import com.n26.model.Statistic;
+
+/**
+ * {@link StatisticWindow} with a single writer. Writers claim a sequence of a
+ * preallocated ring buffer, store the amount in its slot and publish it. A
+ * dedicated consumer thread applies the published amounts to a single
+ * {@link BucketRing} in batches, holding the write lock once per batch, so
+ * writers never contend on the ring itself.
+ * <p>
+ * Reads first wait until every amount published before them has been
+ * applied, so a saved transaction is visible to the next read as in the other
+ * modes, but for the given read wait at most. Beyond it, the read is served
+ * from the amounts applied so far rather than waiting behind a backlog of up
+ * to the whole buffer. {@link #clear()} always waits. {@link #close()} lets the
+ * consumer drain the buffer and stop, after which writers apply their own
+ * amounts.
+ */
+public class PipelinedStatisticWindow extends GuardedStatisticWindow implements AutoCloseable {
+	/**
+	 * Most amounts applied under a single hold of the write lock
+	 */
+	private static final int MAX_BATCH = 256;
+	private static final int SPIN_TRIES = 100;
+	private static final long PARK_NANOS = 1_000;
+
+	private final int mask;
+	private final int roundShift;
+	private final WaitStrategy waitStrategy;
+	private final long maxReadWaitInNanoSeconds;
+
+	private final Object[] payloads;
+	private final long[] timestamps;
+	private final long[] nows;
+	private final AtomicIntegerArray publishedRounds;
+
+	private final AtomicLong claimedSequence = new AtomicLong();
+	private final AtomicLong appliedSequence = new AtomicLong(-1);
+
+	private final Thread consumer;
+	private final Consumer<BucketRing> batchWriter = this::applyBatch;
+	private volatile boolean running = true;
+	private volatile boolean consumerParked;
+	private volatile boolean consumerStopped;
+
+	/**
+	 * Range of the batch being applied, only used by the consumer and after
+	 * it has stopped by {@link #applyPublished()}
+	 */
+	private long batchFrom;
+	private long batchTo;
+
+	/**
+	 * Serializes {@link #applyPublished()} once the consumer has stopped
+	 */
+	private final ReentrantLock stoppedLock = new ReentrantLock();
+
+	public PipelinedStatisticWindow(long windowInMilliSeconds, long bucketInMilliSeconds, int scale, int bufferSize,
+			WaitStrategy waitStrategy) {
+		this(new long[] { windowInMilliSeconds }, bucketInMilliSeconds, scale,
+				QuantileMapping.DEFAULT_RELATIVE_ACCURACY, bufferSize, waitStrategy, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param windowsInMilliSeconds
+	 *            lengths of the windows, in ascending order
+	 * @param bucketInMilliSeconds
+	 * @param scale
+	 *            fixed-point scale of the buckets, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 * @param quantileAccuracy
+	 *            relative accuracy of the quantiles
+	 * @param bufferSize
+	 *            number of slots of the ring buffer, rounded up to a power of
+	 *            two
+	 * @param waitStrategy
+	 *            {@link WaitStrategy} of the consumer
+	 * @param maxReadWaitInMilliSeconds
+	 *            longest a read waits for the amounts published before it
+	 */
+	public PipelinedStatisticWindow(long[] windowsInMilliSeconds, long bucketInMilliSeconds, int scale,
+			double quantileAccuracy, int bufferSize, WaitStrategy waitStrategy, long maxReadWaitInMilliSeconds) {
+		super(new BucketRing[] {
+				new BucketRing(windowsInMilliSeconds, bucketInMilliSeconds, scale, quantileAccuracy) });
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		}
+		if (maxReadWaitInMilliSeconds < 0) {
+			throw new IllegalArgumentException("Read wait must not be negative: " + maxReadWaitInMilliSeconds);
+		}
+
+		int size = bufferSize == 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1;
+		this.mask = size - 1;
+		this.roundShift = Integer.numberOfTrailingZeros(size);
+		this.waitStrategy = waitStrategy;
+		this.maxReadWaitInNanoSeconds = TimeUnit.MILLISECONDS.toNanos(maxReadWaitInMilliSeconds);
+
+		this.payloads = new Object[size];
+		this.timestamps = new long[size];
+		this.nows = new long[size];
+		this.publishedRounds = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			publishedRounds.set(i, -1);
+		}
+
+		this.consumer = new Thread(this::consume, "statistic-pipeline");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	@Override
+	public void add(BigDecimal amount, long timestamp, long now) {
+		publish(amount, timestamp, now);
+	}
+
+	@Override
+	public void addAll(BucketRing batch, long now) {
+		publish(batch, 0, now);
+	}
+
+	@Override
+	public Statistic getStatistic(long now) {
+		awaitReadable();
+		return super.getStatistic(now);
+	}
+
+	@Override
+	public Statistic getStatistic(long windowInMilliSeconds, long now) {
+		awaitReadable();
+		return super.getStatistic(windowInMilliSeconds, now);
+	}
+
+	@Override
+	public Quantiles getQuantiles(long windowInMilliSeconds, long now) {
+		awaitReadable();
+		return super.getQuantiles(windowInMilliSeconds, now);
+	}
+
+	@Override
+	public void clear() {
+		awaitApplied();
+		super.clear();
+	}
+
+	/**
+	 * Stops the consumer once it has applied the published amounts
+	 */
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(consumer);
+		try {
+			consumer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Number of slots of the ring buffer
+	 */
+	public int getBufferSize() {
+		return payloads.length;
+	}
+
+	/**
+	 * Number of published amounts which are not applied yet
+	 */
+	public long getBacklog() {
+		return claimedSequence.get() - 1 - appliedSequence.get();
+	}
+
+	private void publish(Object payload, long timestamp, long now) {
+		long sequence = claimedSequence.getAndIncrement();
+		// Waits while the buffer is full until the slot is free again
+		awaitApplied(sequence - payloads.length);
+
+		int slot = (int) sequence & mask;
+		payloads[slot] = payload;
+		timestamps[slot] = timestamp;
+		nows[slot] = now;
+		publishedRounds.set(slot, (int) (sequence >>> roundShift));
+
+		if (consumerParked) {
+			LockSupport.unpark(consumer);
+		} else if (consumerStopped) {
+			applyPublished();
+		}
+	}
+
+	private boolean isPublished(long sequence) {
+		return publishedRounds.get((int) sequence & mask) == (int) (sequence >>> roundShift);
+	}
+
+	private void consume() {
+		long next = 0;
+		int attempts = 0;
+		while (true) {
+			long last = next - 1;
+			while (last + 1 - next < MAX_BATCH && isPublished(last + 1)) {
+				last++;
+			}
+
+			if (last >= next) {
+				batchFrom = next;
+				batchTo = last;
+				rings[0].write(batchWriter);
+				appliedSequence.set(last);
+				next = last + 1;
+				attempts = 0;
+			} else if (!running) {
+				consumerStopped = true;
+				applyPublished();
+				return;
+			} else if (waitStrategy == WaitStrategy.BLOCKING) {
+				consumerParked = true;
+				if (!isPublished(next) && running) {
+					waitStrategy.idle(attempts);
+				}
+				consumerParked = false;
+			} else {
+				waitStrategy.idle(attempts++);
+			}
+		}
+	}
+
+	/**
+	 * Applies the amounts from batchFrom to batchTo, under the write lock
+	 */
+	private void applyBatch(BucketRing bucketRing) {
+		for (long sequence = batchFrom; sequence <= batchTo; sequence++) {
+			int slot = (int) sequence & mask;
+			Object payload = payloads[slot];
+			payloads[slot] = null;
+
+			if (payload instanceof BucketRing) {
+				bucketRing.merge((BucketRing) payload, nows[slot]);
+			} else if (!bucketRing.add((BigDecimal) payload, timestamps[slot], nows[slot])) {
+				getMetrics().recordExpiredAmount();
+			}
+		}
+	}
+
+	/**
+	 * Applies the published amounts once the consumer has stopped. Whoever
+	 * publishes or waits for an amount after that applies it.
+	 */
+	private void applyPublished() {
+		stoppedLock.lock();
+		try {
+			long next = appliedSequence.get() + 1;
+			long last = next - 1;
+			while (isPublished(last + 1)) {
+				last++;
+			}
+
+			if (last >= next) {
+				batchFrom = next;
+				batchTo = last;
+				rings[0].write(batchWriter);
+				appliedSequence.set(last);
+			}
+		} finally {
+			stoppedLock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until every amount claimed so far has been applied
+	 */
+	private void awaitApplied() {
+		awaitApplied(claimedSequence.get() - 1);
+	}
+
+	/**
+	 * Waits until every amount claimed so far has been applied, or the read
+	 * wait has passed
+	 */
+	private void awaitReadable() {
+		long sequence = claimedSequence.get() - 1;
+		long startedAt = System.nanoTime();
+		for (int attempts = 0; appliedSequence.get() < sequence; attempts++) {
+			if (consumerStopped) {
+				applyPublished();
+			} else if (System.nanoTime() - startedAt >= maxReadWaitInNanoSeconds) {
+				return;
+			}
+			backOff(attempts);
+		}
+	}
+
+	private void awaitApplied(long sequence) {
+		for (int attempts = 0; appliedSequence.get() < sequence; attempts++) {
+			if (consumerStopped) {
+				applyPublished();
+			}
+			backOff(attempts);
+		}
+	}
+
+	private static void backOff(int attempts) {
+		if (attempts < SPIN_TRIES) {
+			return;
+		} else if (attempts < 2 * SPIN_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps amounts to the keys of logarithmically sized bins, so that every amount
+ * of a bin is within the relative accuracy of the value the bin stands for.
+ * Keys are ordered like the amounts: negative amounts have negative keys, zero
+ * has key 0 and positive amounts have positive keys.
+ * <p>
+ * Magnitudes are clamped to [{@value #MIN_MAGNITUDE}, {@value #MAX_MAGNITUDE}],
+ * which bounds the number of bins.
+ */
+public class QuantileMapping {
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+	public static final double MIN_MAGNITUDE = 1e-6;
+	public static final double MAX_MAGNITUDE = 1e15;
+
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double logGamma;
+	private final int minIndex;
+	private final int maxIndex;
+	private final int offset;
+
+	/**
+	 * @param relativeAccuracy
+	 *            maximum relative error of a quantile, between 0 and 1
+	 *            (exclusive)
+	 */
+	public QuantileMapping(double relativeAccuracy) {
+		if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+			throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+		}
+
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.logGamma = Math.log(gamma);
+		this.minIndex = index(MIN_MAGNITUDE);
+		this.maxIndex = index(MAX_MAGNITUDE);
+		this.offset = 1 - minIndex;
+	}
+
+	/**
+	 * @param amount
+	 *            amount of a transaction
+	 * @return key of the bin of the amount
+	 */
+	public int keyOf(BigDecimal amount) {
+		return keyOf(amount.doubleValue());
+	}
+
+	/**
+	 * @param amount
+	 *            amount of a transaction as a double
+	 * @return key of the bin of the amount
+	 */
+	public int keyOf(double amount) {
+		if (amount == 0) {
+			return 0;
+		}
+
+		int index = Math.max(minIndex, Math.min(maxIndex, index(Math.abs(amount))));
+		return amount < 0 ? -(index + offset) : index + offset;
+	}
+
+	/**
+	 * @param key
+	 *            key of a bin
+	 * @return value the bin stands for
+	 */
+	public double valueOf(int key) {
+		if (key == 0) {
+			return 0;
+		}
+
+		double value = 2 * Math.pow(gamma, Math.abs(key) - offset) / (gamma + 1);
+		return key < 0 ? -value : value;
+	}
+
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	/**
+	 * Index of the bin (gamma^(index-1), gamma^index] holding the magnitude
+	 */
+	private int index(double magnitude) {
+		return (int) Math.ceil(Math.log(magnitude) / logGamma);
+	}
+}
@@ -0,0 +1,127 @@
+package com.n26.window;
+
+import java.util.Arrays;
+
+/**
+ * Counts of amounts per bin of a {@link QuantileMapping}, kept as sorted
+ * arrays of the non-empty bins. Sketches are merged and subtracted bin by bin,
+ * thus the sketch of a window is maintained like its running totals, and a
+ * quantile is found by walking the bins in O(number of bins) time.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class QuantileSketch {
+	private static final int[] NO_KEYS = new int[0];
+	private static final long[] NO_COUNTS = new long[0];
+
+	private final QuantileMapping mapping;
+
+	private int[] keys = NO_KEYS;
+	private long[] counts = NO_COUNTS;
+	private int size;
+	private long count;
+
+	public QuantileSketch(QuantileMapping mapping) {
+		this.mapping = mapping;
+	}
+
+	/**
+	 * Counts an amount in its bin
+	 *
+	 * @param key
+	 *            key of the bin, see {@link QuantileMapping#keyOf}
+	 */
+	public void add(int key) {
+		addCount(key, 1);
+	}
+
+	/**
+	 * Adds the counts of another sketch to this sketch
+	 *
+	 * @param other
+	 *            {@link QuantileSketch} with the same mapping
+	 */
+	public void merge(QuantileSketch other) {
+		for (int i = 0; i < other.size; i++) {
+			addCount(other.keys[i], other.counts[i]);
+		}
+	}
+
+	/**
+	 * Removes the counts of another sketch from this sketch
+	 *
+	 * @param other
+	 *            {@link QuantileSketch} which has been merged into this sketch
+	 *            before
+	 */
+	public void subtract(QuantileSketch other) {
+		for (int i = 0; i < other.size; i++) {
+			addCount(other.keys[i], -other.counts[i]);
+		}
+	}
+
+	/**
+	 * Empties the sketch, keeping its arrays for reuse
+	 */
+	public void clear() {
+		size = 0;
+		count = 0;
+	}
+
+	/**
+	 * @param quantile
+	 *            between 0 and 1
+	 * @return value of the bin holding the amount of the given rank, or 0 if
+	 *         the sketch is empty
+	 */
+	public double getValueAt(double quantile) {
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(0, (long) Math.ceil(quantile * count) - 1);
+		long seen = 0;
+		for (int i = 0; i < size; i++) {
+			seen += counts[i];
+			if (seen > rank) {
+				return mapping.valueOf(keys[i]);
+			}
+		}
+		return mapping.valueOf(keys[size - 1]);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	QuantileMapping getMapping() {
+		return mapping;
+	}
+
+	private void addCount(int key, long delta) {
+		count += delta;
+
+		int position = Arrays.binarySearch(keys, 0, size, key);
+		if (position >= 0) {
+			counts[position] += delta;
+			if (counts[position] == 0) {
+				System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+				System.arraycopy(counts, position + 1, counts, position, size - position - 1);
+				size--;
+			}
+			return;
+		}
+
+		position = -position - 1;
+		if (size == keys.length) {
+			int capacity = Math.max(4, size * 2);
+			keys = Arrays.copyOf(keys, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+		}
+		System.arraycopy(keys, position, keys, position + 1, size - position);
+		System.arraycopy(counts, position, counts, position + 1, size - position);
+		keys[position] = key;
+		counts[position] = delta;
+		size++;
+	}
+}
@@ -0,0 +1,183 @@
+package com.n26.window;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.n26.model.StatisticSlice;
+
+/**
+ * Statistic of the buckets which have left the longest window, rolled up into
+ * time slices of one or more resolutions such as a minute and an hour.
+ * <p>
+ * Every resolution keeps a fixed number of slots, each holding the
+ * pre-aggregated values of one time slice in a {@link Bucket}, so the memory
+ * used is bounded by the retention of the resolutions. A slot is reused for a
+ * newer time slice once its own slice is older than the retention. Archiving
+ * a bucket takes O(number of resolutions) time, and querying a range
+ * O(range / resolution) time.
+ * <p>
+ * Buckets are archived at most once per bucket time and ring, thus the
+ * archive is simply guarded by a lock. It is not its monitor, which would pin
+ * the carrier of a virtual thread waiting for it.
+ */
+public class StatisticArchive {
+	/**
+	 * Archive without any resolution, which drops every bucket
+	 */
+	public static final StatisticArchive NONE = new StatisticArchive(new long[0], new int[0], Bucket.NO_FIXED_POINT);
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final long[] resolutionsInMilliSeconds;
+	private final Bucket[][] slots;
+
+	/**
+	 * Id of the newest time slice of every resolution
+	 */
+	private final long[] newestIds;
+
+	/**
+	 * @param resolutionsInMilliSeconds
+	 *            lengths of the time slices of every resolution, each a
+	 *            multiple of the bucket time
+	 * @param slotCounts
+	 *            number of time slices kept for every resolution
+	 * @param scale
+	 *            fixed-point scale of the slots, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 */
+	public StatisticArchive(long[] resolutionsInMilliSeconds, int[] slotCounts, int scale) {
+		if (resolutionsInMilliSeconds.length != slotCounts.length) {
+			throw new IllegalArgumentException("Every resolution needs a number of slots");
+		}
+
+		this.resolutionsInMilliSeconds = resolutionsInMilliSeconds.clone();
+		this.slots = new Bucket[resolutionsInMilliSeconds.length][];
+		this.newestIds = new long[resolutionsInMilliSeconds.length];
+		Arrays.fill(newestIds, Long.MIN_VALUE);
+		for (int i = 0; i < slots.length; i++) {
+			if (resolutionsInMilliSeconds[i] <= 0 || slotCounts[i] <= 0) {
+				throw new IllegalArgumentException("Resolution and number of slots must be positive");
+			}
+
+			slots[i] = new Bucket[slotCounts[i]];
+			for (int j = 0; j < slotCounts[i]; j++) {
+				slots[i][j] = new Bucket(scale);
+			}
+		}
+	}
+
+	/**
+	 * Adds the values of a bucket which has left the longest window to the
+	 * time slice of every resolution it falls into. A bucket older than the
+	 * retention of a resolution is ignored there.
+	 *
+	 * @param bucket
+	 *            expired {@link Bucket}
+	 * @param startInMilliSeconds
+	 *            epoch milliseconds at which the time slice of the bucket
+	 *            starts
+	 */
+	public void add(Bucket bucket, long startInMilliSeconds) {
+		lock.lock();
+		try {
+			for (int resolution = 0; resolution < slots.length; resolution++) {
+				long id = Math.floorDiv(startInMilliSeconds, resolutionsInMilliSeconds[resolution]);
+				Bucket slot = slots[resolution][indexOf(resolution, id)];
+				if (slot.getId() > id) {
+					continue;
+				}
+
+				if (slot.getId() < id) {
+					slot.reset(id);
+					newestIds[resolution] = Math.max(newestIds[resolution], id);
+				}
+				slot.merge(bucket);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the statistic of every non-empty time slice of the given
+	 * resolution which overlaps the given range, oldest first
+	 *
+	 * @param fromInMilliSeconds
+	 *            epoch milliseconds, inclusive
+	 * @param toInMilliSeconds
+	 *            epoch milliseconds, exclusive
+	 * @param resolutionInMilliSeconds
+	 *            length of the time slices, one of {@link #getResolutions()}
+	 * @return {@link StatisticSlice}s
+	 * @throws IllegalArgumentException
+	 *             if there is no resolution of the given length
+	 */
+	public List<StatisticSlice> getHistory(long fromInMilliSeconds, long toInMilliSeconds,
+			long resolutionInMilliSeconds) {
+		int resolution = indexOfResolution(resolutionInMilliSeconds);
+		List<StatisticSlice> history = new ArrayList<>();
+		lock.lock();
+		try {
+			long newestId = newestIds[resolution];
+			if (toInMilliSeconds <= fromInMilliSeconds || newestId == Long.MIN_VALUE) {
+				return history;
+			}
+
+			// Time slices older than the number of slots before the newest one have been overwritten
+			long fromId = Math.max(Math.floorDiv(fromInMilliSeconds, resolutionInMilliSeconds),
+					newestId - slots[resolution].length + 1);
+			long toId = Math.min(Math.floorDiv(toInMilliSeconds - 1, resolutionInMilliSeconds), newestId);
+
+			for (long id = fromId; id <= toId; id++) {
+				Bucket slot = slots[resolution][indexOf(resolution, id)];
+				if (slot.getId() == id && slot.getCount() > 0) {
+					history.add(new StatisticSlice(Instant.ofEpochMilli(id * resolutionInMilliSeconds),
+							slot.toStatistic()));
+				}
+			}
+			return history;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return lengths of the time slices of the resolutions
+	 */
+	public long[] getResolutions() {
+		return resolutionsInMilliSeconds.clone();
+	}
+
+	/**
+	 * Empties all slots
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			for (Bucket[] resolutionSlots : slots) {
+				for (Bucket slot : resolutionSlots) {
+					slot.reset(Long.MIN_VALUE);
+				}
+			}
+			Arrays.fill(newestIds, Long.MIN_VALUE);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int indexOfResolution(long resolutionInMilliSeconds) {
+		for (int resolution = 0; resolution < resolutionsInMilliSeconds.length; resolution++) {
+			if (resolutionsInMilliSeconds[resolution] == resolutionInMilliSeconds) {
+				return resolution;
+			}
+		}
+		throw new IllegalArgumentException("No resolution of " + resolutionInMilliSeconds + " milliseconds");
+	}
+
+	private int indexOf(int resolution, long id) {
+		return (int) Math.floorMod(id, (long) slots[resolution].length);
+	}
+}
@@ -0,0 +1,116 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+
+import com.n26.model.Quantiles;
+import com.n26.model.Statistic;
+
+/**
+ * Thread-safe sliding windows of one or more lengths aggregating the amounts
+ * of transactions
+ *
+ * @see {@link Statistic}
+ */
+public interface StatisticWindow {
+	/**
+	 * Adds an amount to the window. The amount is ignored if its time slice has
+	 * already expired.
+	 *
+	 * @param amount
+	 *            amount of the transaction
+	 * @param timestamp
+	 *            epoch milliseconds of the transaction
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	void add(BigDecimal amount, long timestamp, long now);
+
+	/**
+	 * Creates an empty, not thread-safe ring with the layout of this window, to
+	 * aggregate a batch of amounts before adding them with
+	 * {@link #addAll(BucketRing, long)}
+	 *
+	 * @return {@link BucketRing}
+	 */
+	BucketRing newBatch();
+
+	/**
+	 * Adds all amounts of a batch to the window in one step
+	 *
+	 * @param batch
+	 *            {@link BucketRing} created by {@link #newBatch()}
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	void addAll(BucketRing batch, long now);
+
+	/**
+	 * Returns statistic of the amounts in the longest window.
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return {@link Statistic}
+	 */
+	Statistic getStatistic(long now);
+
+	/**
+	 * Returns statistic of the amounts in the window of the given length.
+	 *
+	 * @param windowInMilliSeconds
+	 *            length of the window, one of {@link #getWindows()}
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return {@link Statistic}
+	 * @throws IllegalArgumentException
+	 *             if there is no window of the given length
+	 */
+	Statistic getStatistic(long windowInMilliSeconds, long now);
+
+	/**
+	 * Returns the median, 90th and 99th percentile of the amounts in the window
+	 * of the given length.
+	 *
+	 * @param windowInMilliSeconds
+	 *            length of the window, one of {@link #getWindows()}
+	 * @param now
+	 *            current epoch milliseconds
+	 * @return {@link Quantiles}
+	 * @throws IllegalArgumentException
+	 *             if there is no window of the given length
+	 */
+	Quantiles getQuantiles(long windowInMilliSeconds, long now);
+
+	/**
+	 * Advances the window to the given time, removing the amounts of every
+	 * expired bucket in one update per bucket. Reads and writes also advance
+	 * the window when they find expired buckets.
+	 *
+	 * @param now
+	 *            current epoch milliseconds
+	 */
+	void expire(long now);
+
+	/**
+	 * Rolls the buckets which leave the longest window up into the given
+	 * archive from now on
+	 *
+	 * @param archive
+	 *            {@link StatisticArchive}
+	 */
+	void setArchive(StatisticArchive archive);
+
+	/**
+	 * @return {@link WindowMetrics} of the window
+	 */
+	WindowMetrics getMetrics();
+
+	/**
+	 * @return lengths of the windows in milliseconds, in ascending order
+	 */
+	long[] getWindows();
+
+	/**
+	 * Removes all amounts from the window.
+	 */
+	void clear();
+}
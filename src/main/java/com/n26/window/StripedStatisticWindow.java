@@ -0,0 +1,85 @@
+package com.n26.window;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link StatisticWindow} spreading writers over independent stripes, each
+ * owning its own {@link BucketRing}. A writer claims a stripe with a single
+ * compare-and-set and moves on to the next stripe if it is already claimed,
+ * so concurrent writers never queue up on a shared lock. Reading the
+ * statistic merges the stripes.
+ */
+public class StripedStatisticWindow extends GuardedStatisticWindow {
+	private final int mask;
+
+	public StripedStatisticWindow(long windowInMilliSeconds, long bucketInMilliSeconds, int scale,
+			int stripeCount) {
+		this(new long[] { windowInMilliSeconds }, bucketInMilliSeconds, scale,
+				QuantileMapping.DEFAULT_RELATIVE_ACCURACY, stripeCount);
+	}
+
+	/**
+	 * @param windowsInMilliSeconds
+	 *            lengths of the windows, in ascending order
+	 * @param bucketInMilliSeconds
+	 * @param scale
+	 *            fixed-point scale of the buckets, or
+	 *            {@link Bucket#NO_FIXED_POINT}
+	 * @param quantileAccuracy
+	 *            relative accuracy of the quantiles
+	 * @param stripeCount
+	 *            number of stripes, rounded up to a power of two. Number of
+	 *            available processors is used if not positive.
+	 */
+	public StripedStatisticWindow(long[] windowsInMilliSeconds, long bucketInMilliSeconds, int scale,
+			double quantileAccuracy, int stripeCount) {
+		super(createStripes(windowsInMilliSeconds, bucketInMilliSeconds, scale, quantileAccuracy, stripeCount));
+		this.mask = rings.length - 1;
+	}
+
+	@Override
+	public void add(BigDecimal amount, long timestamp, long now) {
+		int home = homeStripe();
+		for (int i = 0; i <= mask; i++) {
+			if (rings[(home + i) & mask].tryAdd(amount, timestamp, now)) {
+				return;
+			}
+		}
+
+		// Every stripe is claimed, wait for the home stripe
+		rings[home].add(amount, timestamp, now);
+	}
+
+	@Override
+	public void addAll(BucketRing batch, long now) {
+		rings[homeStripe()].merge(batch, now);
+	}
+
+	/**
+	 * Number of stripes
+	 */
+	public int getStripeCount() {
+		return rings.length;
+	}
+
+	private int homeStripe() {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private static BucketRing[] createStripes(long[] windowsInMilliSeconds, long bucketInMilliSeconds,
+			int scale, double quantileAccuracy, int stripeCount) {
+		if (stripeCount <= 0) {
+			stripeCount = Runtime.getRuntime().availableProcessors();
+		}
+
+		int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+		BucketRing[] stripes = new BucketRing[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new BucketRing(windowsInMilliSeconds, bucketInMilliSeconds, scale, quantileAccuracy);
+		}
+		return stripes;
+	}
+}
@@ -0,0 +1,63 @@
+package com.n26.window;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How the consumer of a {@link PipelinedStatisticWindow} waits for amounts to
+ * be published
+ */
+public enum WaitStrategy {
+	/**
+	 * Spins on the published sequence, keeping a core busy for the lowest
+	 * latency
+	 */
+	BUSY_SPIN,
+
+	/**
+	 * Spins a while and then yields the core to other threads
+	 */
+	YIELDING,
+
+	/**
+	 * Spins, yields and then sleeps briefly, trading latency for an idle core
+	 */
+	SLEEPING,
+
+	/**
+	 * Parks until a writer publishes, which costs writers an unpark whenever
+	 * the consumer has parked
+	 */
+	BLOCKING;
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long SLEEP_NANOS = 100_000;
+
+	/**
+	 * Waits once while nothing is published
+	 *
+	 * @param attempts
+	 *            number of times waited since the last published amount
+	 */
+	void idle(int attempts) {
+		switch (this) {
+		case BUSY_SPIN:
+			break;
+		case YIELDING:
+			if (attempts >= SPIN_TRIES) {
+				Thread.yield();
+			}
+			break;
+		case SLEEPING:
+			if (attempts >= SPIN_TRIES + YIELD_TRIES) {
+				LockSupport.parkNanos(SLEEP_NANOS);
+			} else if (attempts >= SPIN_TRIES) {
+				Thread.yield();
+			}
+			break;
+		case BLOCKING:
+			LockSupport.park(this);
+			break;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.n26.window;
+
+import java.time.Clock;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the {@link StatisticWindow} for the configured ingest mode.
+ * <ul>
+ * <li>locked: a single bucket ring guarded by a read write lock</li>
+ * <li>striped: per-stripe bucket rings claimed by compare-and-set, merged on
+ * read</li>
+ * <li>pipeline: writers publish into a ring buffer of ingest.buffer.size
+ * slots, which a single consumer thread applies to a bucket ring, waiting
+ * for amounts with ingest.wait.strategy (blocking, sleeping, yielding or
+ * busy-spin). A read waits for the amounts published before it for
+ * ingest.read.wait.in.milliseconds at most, thus a saved transaction may be
+ * missing from the next read while the buffer is backed up.</li>
+ * </ul>
+ * Amounts are aggregated as BigDecimals, or as scaled longs when
+ * statistic.arithmetic is fixed-point.
+ * <p>
+ * Besides the window of cache.time.in.milliseconds, the window lengths listed
+ * in statistic.windows (e.g. 1s,10s,5m) are served from the same buckets.
+ * Quantiles are estimated within the relative accuracy of
+ * statistic.quantiles.accuracy.
+ * <p>
+ * With statistic.expiry=wheel (default) a {@link WindowTicker} advances the
+ * window at every bucket boundary. With statistic.expiry=lazy nothing runs in
+ * the background: the first write or read after a bucket boundary advances
+ * the window, thus the pipeline ingest mode, which needs a consumer thread, is
+ * not available.
+ * <p>
+ * Buckets leaving the longest window are rolled up into a
+ * {@link StatisticArchive} with the resolutions and retentions listed in
+ * statistic.history (e.g. 1m:24h,1h:7d). An empty list disables the archive.
+ */
+@Configuration
+public class WindowConfig {
+
+	@Bean
+	public StatisticWindow statisticWindow(@Value("${cache.time.in.milliseconds}") int cacheTimeInMilliSeconds,
+			@Value("${bucket.time.in.milliseconds}") int bucketTimeInMilliSeconds,
+			@Value("${statistic.windows:}") String windows, @Value("${statistic.expiry:wheel}") String expiry,
+			@Value("${ingest.mode:locked}") String ingestMode,
+			@Value("${ingest.stripes:0}") int stripes, @Value("${ingest.buffer.size:65536}") int bufferSize,
+			@Value("${ingest.wait.strategy:blocking}") String waitStrategy,
+			@Value("${ingest.read.wait.in.milliseconds:10}") long readWaitInMilliSeconds,
+			@Value("${statistic.arithmetic:big-decimal}") String arithmetic,
+			@Value("${statistic.scale:2}") int scale,
+			@Value("${statistic.quantiles.accuracy:0.01}") double quantileAccuracy) {
+		long[] windowsInMilliSeconds = getWindows(windows, cacheTimeInMilliSeconds, bucketTimeInMilliSeconds);
+		int bucketScale = getBucketScale(arithmetic, scale);
+		if (isLazyExpiry(expiry) && "pipeline".equals(ingestMode)) {
+			throw new IllegalArgumentException("The pipeline ingest mode needs a thread, unlike lazy expiry");
+		}
+
+		switch (ingestMode) {
+		case "locked":
+			return new LockedStatisticWindow(windowsInMilliSeconds, bucketTimeInMilliSeconds, bucketScale,
+					quantileAccuracy);
+		case "striped":
+			return new StripedStatisticWindow(windowsInMilliSeconds, bucketTimeInMilliSeconds, bucketScale,
+					quantileAccuracy, stripes);
+		case "pipeline":
+			return new PipelinedStatisticWindow(windowsInMilliSeconds, bucketTimeInMilliSeconds, bucketScale,
+					quantileAccuracy, bufferSize, getWaitStrategy(waitStrategy), readWaitInMilliSeconds);
+		default:
+			throw new IllegalArgumentException("Unknown ingest mode: " + ingestMode);
+		}
+	}
+
+	@Bean
+	public StatisticArchive statisticArchive(StatisticWindow statisticWindow,
+			@Value("${bucket.time.in.milliseconds}") int bucketTimeInMilliSeconds,
+			@Value("${statistic.history:1m:24h,1h:7d}") String history,
+			@Value("${statistic.arithmetic:big-decimal}") String arithmetic,
+			@Value("${statistic.scale:2}") int scale) {
+		String[] entries = history.trim().isEmpty() ? new String[0] : history.split(",");
+		long[] resolutions = new long[entries.length];
+		int[] slotCounts = new int[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			String[] resolutionAndRetention = entries[i].trim().split(":");
+			if (resolutionAndRetention.length != 2) {
+				throw new IllegalArgumentException("Expected resolution:retention in statistic.history: " + entries[i]);
+			}
+
+			resolutions[i] = DurationStyle.detectAndParse(resolutionAndRetention[0].trim()).toMillis();
+			long retention = DurationStyle.detectAndParse(resolutionAndRetention[1].trim()).toMillis();
+			if (resolutions[i] <= 0 || resolutions[i] % bucketTimeInMilliSeconds != 0) {
+				throw new IllegalArgumentException("Resolution must be a multiple of the bucket time: " + entries[i]);
+			}
+			slotCounts[i] = (int) Math.max(1, (retention + resolutions[i] - 1) / resolutions[i]);
+		}
+
+		StatisticArchive archive = resolutions.length == 0 ? StatisticArchive.NONE
+				: new StatisticArchive(resolutions, slotCounts, getBucketScale(arithmetic, scale));
+		statisticWindow.setArchive(archive);
+		return archive;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "statistic.expiry", havingValue = "wheel", matchIfMissing = true)
+	public WindowTicker windowTicker(StatisticWindow statisticWindow,
+			@Value("${bucket.time.in.milliseconds}") int bucketTimeInMilliSeconds, Clock clock) {
+		return new WindowTicker(statisticWindow, bucketTimeInMilliSeconds, clock);
+	}
+
+	private long[] getWindows(String windows, int cacheTimeInMilliSeconds, int bucketTimeInMilliSeconds) {
+		TreeSet<Long> lengths = new TreeSet<>();
+		lengths.add((long) cacheTimeInMilliSeconds);
+		for (String window : windows.split(",")) {
+			if (!window.trim().isEmpty()) {
+				lengths.add(DurationStyle.detectAndParse(window.trim()).toMillis());
+			}
+		}
+
+		if (lengths.first() < bucketTimeInMilliSeconds) {
+			throw new IllegalArgumentException("Windows must not be shorter than a bucket: " + lengths.first());
+		}
+		return lengths.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private boolean isLazyExpiry(String expiry) {
+		switch (expiry) {
+		case "wheel":
+			return false;
+		case "lazy":
+			return true;
+		default:
+			throw new IllegalArgumentException("Unknown statistic expiry: " + expiry);
+		}
+	}
+
+	private WaitStrategy getWaitStrategy(String waitStrategy) {
+		switch (waitStrategy) {
+		case "blocking":
+			return WaitStrategy.BLOCKING;
+		case "sleeping":
+			return WaitStrategy.SLEEPING;
+		case "yielding":
+			return WaitStrategy.YIELDING;
+		case "busy-spin":
+			return WaitStrategy.BUSY_SPIN;
+		default:
+			throw new IllegalArgumentException("Unknown wait strategy: " + waitStrategy);
+		}
+	}
+
+	private int getBucketScale(String arithmetic, int scale) {
+		switch (arithmetic) {
+		case "big-decimal":
+			return Bucket.NO_FIXED_POINT;
+		case "fixed-point":
+			if (scale < 0 || scale > 18) {
+				throw new IllegalArgumentException("Fixed-point scale must be between 0 and 18: " + scale);
+			}
+			return scale;
+		default:
+			throw new IllegalArgumentException("Unknown statistic arithmetic: " + arithmetic);
+		}
+	}
+}
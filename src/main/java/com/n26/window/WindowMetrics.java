@@ -0,0 +1,131 @@
+package com.n26.window;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the hot paths of a {@link StatisticWindow}. Counters are
+ * {@link LongAdder}s or plain fields updated under the lock of a ring, so
+ * counting neither locks nor allocates. They are only summed when read, e.g.
+ * when metrics are scraped.
+ */
+public class WindowMetrics {
+	/**
+	 * One in this many write lock acquisitions is timed
+	 */
+	static final int HOLD_SAMPLE_MASK = 63;
+
+	private final LongAdder contendedWrites = new LongAdder();
+	private final LongAdder writeWaitNanos = new LongAdder();
+	private final LongAdder sampledWrites = new LongAdder();
+	private final LongAdder writeHoldNanos = new LongAdder();
+	private final LongAdder expiredAmounts = new LongAdder();
+	private final LongAdder snapshotReads = new LongAdder();
+	private final LongAdder optimisticReads = new LongAdder();
+	private final LongAdder lockedReads = new LongAdder();
+
+	private final GuardedBucketRing[] rings;
+
+	WindowMetrics(GuardedBucketRing[] rings) {
+		this.rings = rings;
+	}
+
+	void recordContendedWrite(long waitNanos) {
+		contendedWrites.increment();
+		writeWaitNanos.add(waitNanos);
+	}
+
+	void recordWriteHold(long holdNanos) {
+		sampledWrites.increment();
+		writeHoldNanos.add(holdNanos);
+	}
+
+	void recordExpiredAmount() {
+		expiredAmounts.increment();
+	}
+
+	void recordSnapshotRead() {
+		snapshotReads.increment();
+	}
+
+	void recordOptimisticRead() {
+		optimisticReads.increment();
+	}
+
+	void recordLockedRead() {
+		lockedReads.increment();
+	}
+
+	/**
+	 * @return number of writes which had to wait for the lock of a ring
+	 */
+	public long getContendedWrites() {
+		return contendedWrites.sum();
+	}
+
+	/**
+	 * @return total time contended writes waited for the lock, in nanoseconds
+	 */
+	public long getWriteWaitNanos() {
+		return writeWaitNanos.sum();
+	}
+
+	/**
+	 * @return number of writes whose lock hold time was sampled
+	 */
+	public long getSampledWrites() {
+		return sampledWrites.sum();
+	}
+
+	/**
+	 * @return total lock hold time of the sampled writes, in nanoseconds
+	 */
+	public long getWriteHoldNanos() {
+		return writeHoldNanos.sum();
+	}
+
+	/**
+	 * @return number of amounts which were ignored because their bucket had
+	 *         already expired
+	 */
+	public long getExpiredAmounts() {
+		return expiredAmounts.sum();
+	}
+
+	/**
+	 * Read without the locks of the rings, thus may be slightly behind
+	 *
+	 * @return number of buckets which have expired with amounts in them, each
+	 *         of which updated the max and min of the window
+	 */
+	public long getExpiredBuckets() {
+		long expiredBuckets = 0;
+		for (GuardedBucketRing ring : rings) {
+			if (ring != null) {
+				expiredBuckets += ring.getBucketRing().getExpiredBuckets();
+			}
+		}
+		return expiredBuckets;
+	}
+
+	/**
+	 * @return number of reads served by the published statistic
+	 */
+	public long getSnapshotReads() {
+		return snapshotReads.sum();
+	}
+
+	/**
+	 * @return number of reads which recalculated the statistic without
+	 *         taking a lock
+	 */
+	public long getOptimisticReads() {
+		return optimisticReads.sum();
+	}
+
+	/**
+	 * @return number of reads which took the lock of at least one ring
+	 */
+	public long getLockedReads() {
+		return lockedReads.sum();
+	}
+}
@@ -0,0 +1,56 @@
+package com.n26.window;
+
+import java.time.Clock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import lombok.extern.java.Log;
+
+/**
+ * Ticks the {@link StatisticWindow} like a timing wheel: right after every
+ * bucket boundary it advances the window, so the amounts of the bucket that
+ * has just expired are removed in a single update. Requests then rarely find
+ * an expired bucket and take the write lock for it themselves.
+ */
+@Log
+public class WindowTicker implements AutoCloseable {
+	private final StatisticWindow statisticWindow;
+	private final Clock clock;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param statisticWindow
+	 *            {@link StatisticWindow} to advance
+	 * @param bucketInMilliSeconds
+	 *            time slice of a bucket, the interval between ticks
+	 * @param clock
+	 *            clock the window is advanced to at every tick
+	 */
+	public WindowTicker(StatisticWindow statisticWindow, long bucketInMilliSeconds, Clock clock) {
+		this.statisticWindow = statisticWindow;
+		this.clock = clock;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "window-ticker");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long untilNextBoundary = bucketInMilliSeconds - clock.millis() % bucketInMilliSeconds;
+		scheduler.scheduleAtFixedRate(this::tick, untilNextBoundary, bucketInMilliSeconds, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+	private void tick() {
+		try {
+			statisticWindow.expire(clock.millis());
+		} catch (RuntimeException ex) {
+			log.log(Level.WARNING, "Window tick failed", ex);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.n26;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.admission.IngestAdmission;
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to rejecting the requests saving transactions beyond the
+ * budget of the ingest
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "ingest.admission.max.in.flight=1", "ingest.admission.retry.after.in.seconds=2" })
+@AutoConfigureMockMvc
+public class AdmissionControlTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IngestAdmission ingestAdmission;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * While the budget is taken, writes are rejected with a Retry-After header
+	 * and reads are still served
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReject() throws Exception {
+		String transaction = "{\"amount\":\"10\",\"timestamp\":\"" + Instant.now() + "\"}";
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(transaction))
+				.andExpect(status().isCreated());
+
+		ingestAdmission.tryAcquire();
+		try {
+			mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(transaction))
+					.andExpect(status().isServiceUnavailable()).andExpect(header().string("Retry-After", "2"));
+			mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON)
+					.content("[" + transaction + "]")).andExpect(status().isServiceUnavailable());
+			mockMvc.perform(get("/statistics")).andExpect(status().isOk()).andExpect(jsonPath("$.count").value(1));
+		} finally {
+			ingestAdmission.release();
+		}
+
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(transaction))
+				.andExpect(status().isCreated());
+		mockMvc.perform(get("/statistics")).andExpect(status().isOk()).andExpect(jsonPath("$.count").value(2));
+	}
+}
@@ -0,0 +1,267 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.n26.model.Statistic;
+import com.n26.window.Bucket;
+import com.n26.window.BucketRing;
+
+/**
+ * Test cases related to the bucket ring of the sliding window
+ */
+public class BucketRingTest {
+
+	private static final long NOW = 1_000_000L;
+
+	private final BucketRing bucketRing = new BucketRing(60000, 1000);
+
+	/**
+	 * Transactions in the same and in different buckets are aggregated
+	 */
+	@Test
+	public void testAggregation() {
+		bucketRing.add(new BigDecimal("10.5"), NOW - 100, NOW);
+		bucketRing.add(new BigDecimal("20"), NOW - 200, NOW);
+		bucketRing.add(new BigDecimal("5"), NOW - 30000, NOW);
+
+		Statistic statistic = bucketRing.getStatistic(NOW);
+		assertEquals(new BigDecimal("35.5"), statistic.getSum());
+		assertEquals(new BigDecimal("20"), statistic.getMax());
+		assertEquals(new BigDecimal("5"), statistic.getMin());
+		assertEquals(3, statistic.getCount());
+		assertEquals(new BigDecimal("11.83"), statistic.getAvg());
+	}
+
+	/**
+	 * A bucket leaves the statistic once the start of its time slice is out of
+	 * the window
+	 */
+	@Test
+	public void testExpiry() {
+		bucketRing.add(new BigDecimal("10"), NOW - 59000, NOW);
+		bucketRing.add(new BigDecimal("20"), NOW, NOW);
+
+		assertEquals(2, bucketRing.getStatistic(NOW).getCount());
+
+		Statistic statistic = bucketRing.getStatistic(NOW + 1000);
+		assertEquals(new BigDecimal("20"), statistic.getSum());
+		assertEquals(1, statistic.getCount());
+
+		assertEquals(0, bucketRing.getStatistic(NOW + 60000).getCount());
+	}
+
+	/**
+	 * A bucket is reused for a new time slice once the old one has expired
+	 */
+	@Test
+	public void testBucketReuse() {
+		bucketRing.add(new BigDecimal("10"), NOW - 50000, NOW);
+		bucketRing.add(new BigDecimal("20"), NOW + 11000, NOW + 11000);
+
+		Statistic statistic = bucketRing.getStatistic(NOW + 11000);
+		assertEquals(new BigDecimal("20"), statistic.getSum());
+		assertEquals(1, statistic.getCount());
+	}
+
+	/**
+	 * A transaction whose bucket has already expired is not added
+	 */
+	@Test
+	public void testExpiredBucket() {
+		assertFalse(bucketRing.add(new BigDecimal("10"), NOW - 60000, NOW));
+		assertEquals(0, bucketRing.getStatistic(NOW).getCount());
+	}
+
+	/**
+	 * Max and min fall back to the next extremes when the buckets holding them
+	 * expire, regardless of the order in which the buckets were filled
+	 */
+	@Test
+	public void testExtremesAfterExpiry() {
+		bucketRing.add(new BigDecimal("30"), NOW - 10000, NOW);
+		bucketRing.add(new BigDecimal("100"), NOW - 50000, NOW);
+		bucketRing.add(new BigDecimal("1"), NOW - 40000, NOW);
+		bucketRing.add(new BigDecimal("20"), NOW - 20000, NOW);
+
+		Statistic statistic = bucketRing.getStatistic(NOW + 10000);
+		assertEquals(new BigDecimal("51"), statistic.getSum());
+		assertEquals(new BigDecimal("30"), statistic.getMax());
+		assertEquals(new BigDecimal("1"), statistic.getMin());
+
+		statistic = bucketRing.getStatistic(NOW + 20000);
+		assertEquals(new BigDecimal("50"), statistic.getSum());
+		assertEquals(new BigDecimal("30"), statistic.getMax());
+		assertEquals(new BigDecimal("20"), statistic.getMin());
+	}
+
+	/**
+	 * Shorter windows are made of the newest buckets of the ring and expire
+	 * independently
+	 */
+	@Test
+	public void testMultipleWindows() {
+		BucketRing bucketRing = new BucketRing(new long[] { 10000, 60000 }, 1000, 2);
+		bucketRing.add(new BigDecimal("100"), NOW - 30000, NOW);
+		bucketRing.add(new BigDecimal("5"), NOW - 5000, NOW);
+		bucketRing.add(new BigDecimal("1"), NOW - 1000, NOW);
+
+		Statistic statistic = bucketRing.getStatistic(0, NOW);
+		assertEquals(new BigDecimal("6.00"), statistic.getSum());
+		assertEquals(new BigDecimal("5.00"), statistic.getMax());
+		assertEquals(new BigDecimal("1.00"), statistic.getMin());
+		assertEquals(2, statistic.getCount());
+
+		statistic = bucketRing.getStatistic(1, NOW);
+		assertEquals(new BigDecimal("106.00"), statistic.getSum());
+		assertEquals(new BigDecimal("100.00"), statistic.getMax());
+		assertEquals(3, statistic.getCount());
+
+		statistic = bucketRing.getStatistic(0, NOW + 5000);
+		assertEquals(new BigDecimal("1.00"), statistic.getSum());
+		assertEquals(new BigDecimal("1.00"), statistic.getMax());
+		assertEquals(1, statistic.getCount());
+		assertEquals(3, bucketRing.getStatistic(1, NOW + 5000).getCount());
+	}
+
+	/**
+	 * Every window of a shared ring reports the same statistic as a ring of its
+	 * own
+	 */
+	@Test
+	public void testMultipleWindowsMatchSeparateRings() {
+		long[] windows = { 1000, 10000, 60000, 300000 };
+		BucketRing shared = new BucketRing(windows, 100, Bucket.NO_FIXED_POINT);
+		BucketRing[] separate = new BucketRing[windows.length];
+		for (int i = 0; i < windows.length; i++) {
+			separate[i] = new BucketRing(windows[i], 100);
+		}
+
+		Random random = new Random(42);
+		long now = NOW;
+		for (int i = 0; i < 20000; i++) {
+			now += random.nextInt(50);
+			BigDecimal amount = BigDecimal.valueOf(random.nextInt(100000), 2);
+			long timestamp = now - random.nextInt(i % 2 == 0 ? 2000 : 300000);
+
+			shared.add(amount, timestamp, now);
+			for (BucketRing ring : separate) {
+				ring.add(amount, timestamp, now);
+			}
+
+			if (i % 100 == 0) {
+				for (int window = 0; window < windows.length; window++) {
+					Statistic expected = separate[window].getStatistic(now);
+					Statistic statistic = shared.getStatistic(window, now);
+					assertEquals(expected.withoutVariance().toString(), statistic.withoutVariance().toString());
+					// Moments are merged in another order
+					assertEquals(expected.getVariance().doubleValue(), statistic.getVariance().doubleValue(),
+							expected.getVariance().doubleValue() * 1e-12);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A ring reports expired buckets exactly from the time the oldest bucket
+	 * of some window leaves it
+	 */
+	@Test
+	public void testExpiryTime() {
+		long[] windows = { 1000, 10000, 60000 };
+		BucketRing bucketRing = new BucketRing(windows, 300, Bucket.NO_FIXED_POINT);
+
+		Random random = new Random(42);
+		long advancedAt = NOW;
+		bucketRing.expire(advancedAt);
+		for (long now = NOW; now < NOW + 100000; now += random.nextInt(50)) {
+			boolean expected = false;
+			for (int window = 0; window < windows.length; window++) {
+				expected |= bucketRing.minLiveIdAt(window, now) > bucketRing.minLiveIdAt(window, advancedAt);
+			}
+			assertEquals("At " + now, expected, bucketRing.hasExpiredBuckets(now));
+
+			if (random.nextInt(10) == 0) {
+				bucketRing.expire(now);
+				advancedAt = now;
+				assertFalse(bucketRing.hasExpiredBuckets(now));
+			}
+		}
+	}
+
+	/**
+	 * The variance of large amounts with a small spread stays accurate while
+	 * buckets keep expiring, as moments of expired buckets are never
+	 * subtracted
+	 */
+	@Test
+	public void testVarianceUnderExpiry() {
+		for (int scale : new int[] { Bucket.NO_FIXED_POINT, 2 }) {
+			BucketRing bucketRing = new BucketRing(1000, 100, scale);
+			Deque<long[]> live = new ArrayDeque<>();
+			Random random = new Random(42);
+			long now = NOW;
+			for (int i = 0; i < 100000; i++) {
+				now += random.nextInt(3);
+				long timestamp = now - random.nextInt(200);
+				long cents = 100_000_000_000L + random.nextInt(1000);
+				if (bucketRing.add(BigDecimal.valueOf(cents, 2), timestamp, now)) {
+					live.add(new long[] { timestamp, cents });
+				}
+
+				if (i % 1000 == 999) {
+					long minLiveId = bucketRing.minLiveIdAt(0, now);
+					live.removeIf(transaction -> Math.floorDiv(transaction[0], 100) < minLiveId);
+					assertEquals(exactVariance(live), bucketRing.getStatistic(now).getVariance().doubleValue(), 1e-4);
+				}
+			}
+		}
+	}
+
+	/**
+	 * An amount whose square overflows a double leaves the variance unknown
+	 * while it is in the window, the other aggregates are still served
+	 */
+	@Test
+	public void testVarianceOverflow() {
+		bucketRing.add(new BigDecimal("1E+200"), NOW - 30000, NOW);
+		bucketRing.add(BigDecimal.ONE, NOW, NOW);
+
+		Statistic statistic = bucketRing.getStatistic(NOW);
+		assertEquals(new BigDecimal("1E+200").add(BigDecimal.ONE), statistic.getSum());
+		assertEquals(2, statistic.getCount());
+		assertNull(statistic.getVariance());
+		assertNull(statistic.getStddev());
+
+		statistic = bucketRing.getStatistic(NOW + 30000);
+		assertEquals(1, statistic.getCount());
+		assertEquals(0, statistic.getVariance().signum());
+	}
+
+	/**
+	 * Two pass population variance of amounts given in cents
+	 */
+	private double exactVariance(Collection<long[]> transactions) {
+		BigDecimal sum = BigDecimal.ZERO;
+		for (long[] transaction : transactions) {
+			sum = sum.add(BigDecimal.valueOf(transaction[1], 2));
+		}
+		BigDecimal count = BigDecimal.valueOf(transactions.size());
+		BigDecimal mean = sum.divide(count, 10, RoundingMode.HALF_EVEN);
+
+		BigDecimal squaredDeviations = BigDecimal.ZERO;
+		for (long[] transaction : transactions) {
+			BigDecimal deviation = BigDecimal.valueOf(transaction[1], 2).subtract(mean);
+			squaredDeviations = squaredDeviations.add(deviation.multiply(deviation));
+		}
+		return squaredDeviations.divide(count, 10, RoundingMode.HALF_EVEN).doubleValue();
+	}
+}
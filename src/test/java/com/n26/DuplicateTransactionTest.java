@@ -0,0 +1,117 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.model.Statistic;
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to counting a transaction posted again only once
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "dedup.enabled=true")
+@AutoConfigureMockMvc
+public class DuplicateTransactionTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * A retried transaction is accepted again but counted once, while
+	 * transactions without an id or with another id are all counted
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRetry() throws Exception {
+		Instant timestamp = Instant.now().minusSeconds(1);
+		String retried = transaction("gw-1", "10", timestamp);
+
+		for (int i = 0; i < 3; i++) {
+			mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(retried))
+					.andExpect(status().isCreated());
+		}
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON)
+				.content(transaction("gw-2", "10", timestamp))).andExpect(status().isCreated());
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON)
+					.content(transaction(null, "10", timestamp))).andExpect(status().isCreated());
+		}
+
+		Statistic statistic = transactionService.getStatistic();
+		assertEquals(0, new BigDecimal("40").compareTo(statistic.getSum()));
+		assertEquals(4, statistic.getCount());
+	}
+
+	/**
+	 * Duplicates within a batch, or of an earlier post, are counted apart
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testBatch() throws Exception {
+		Instant timestamp = Instant.now().minusSeconds(1);
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON)
+				.content(transaction("a", "1", timestamp))).andExpect(status().isCreated());
+
+		String body = "[" + transaction("a", "1", timestamp) + "," + transaction("b", "2", timestamp) + ","
+				+ transaction("b", "2", timestamp) + "," + transaction("c", "3", timestamp) + "]";
+		mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.accepted").value(2))
+				.andExpect(jsonPath("$.duplicate").value(2));
+
+		assertEquals(3, transactionService.getStatistic().getCount());
+	}
+
+	/**
+	 * A malformed batch remembers none of its ids, so its corrected retry is
+	 * counted
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRetryOfMalformedBatch() throws Exception {
+		Instant timestamp = Instant.now().minusSeconds(1);
+		String valid = transaction("a", "1", timestamp) + "," + transaction("b", "2", timestamp);
+		mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + valid + ",{\"amount\":\"3\",")).andExpect(status().isBadRequest());
+		assertEquals(0, transactionService.getStatistic().getCount());
+
+		mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + valid + "," + transaction("c", "3", timestamp) + "]")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.accepted").value(3)).andExpect(jsonPath("$.duplicate").value(0));
+		assertEquals(3, transactionService.getStatistic().getCount());
+	}
+
+	private String transaction(String id, String amount, Instant timestamp) {
+		return "{" + (id == null ? "" : "\"id\":\"" + id + "\",") + "\"amount\":\"" + amount + "\",\"timestamp\":\""
+				+ timestamp + "\"}";
+	}
+}
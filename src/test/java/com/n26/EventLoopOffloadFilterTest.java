@@ -0,0 +1,102 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.n26.rest.EventLoopOffloadFilter;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Test cases related to handling reactive requests off the event loop
+ */
+public class EventLoopOffloadFilterTest {
+	private final ExecutorService executor = Executors
+			.newSingleThreadExecutor(new CustomizableThreadFactory("transaction-batch-"));
+	private final Scheduler scheduler = Schedulers.fromExecutorService(executor);
+	private final EventLoopOffloadFilter filter = new EventLoopOffloadFilter(scheduler);
+
+	/**
+	 * Stops the scheduler after each test
+	 */
+	@After
+	public void dispose() {
+		scheduler.dispose();
+	}
+
+	/**
+	 * Statistics are handled by a thread of the scheduler
+	 */
+	@Test
+	public void testStatisticOffloaded() {
+		AtomicReference<String> handledBy = new AtomicReference<>();
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/statistics").build()), exchange -> {
+			handledBy.set(Thread.currentThread().getName());
+			return Mono.empty();
+		}).block();
+
+		assertTrue(handledBy.get(), handledBy.get().startsWith("transaction-batch-"));
+	}
+
+	/**
+	 * A transaction is decoded from the collected body and saved by the same
+	 * thread of the scheduler
+	 */
+	@Test
+	public void testTransactionOffloaded() {
+		String body = "{\"amount\":\"10.5\",\"timestamp\":\"2018-07-17T09:59:51.312Z\"}";
+		AtomicReference<String> handledBy = new AtomicReference<>();
+		AtomicReference<String> decodedBy = new AtomicReference<>();
+		AtomicReference<String> decoded = new AtomicReference<>();
+
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/transactions").body(body)),
+				exchange -> {
+					handledBy.set(Thread.currentThread().getName());
+					exchange.getRequest().getBody().subscribe(buffer -> {
+						decodedBy.set(Thread.currentThread().getName());
+						decoded.set(read(buffer));
+					});
+					return Mono.empty();
+				}).block();
+
+		assertTrue(handledBy.get(), handledBy.get().startsWith("transaction-batch-"));
+		assertEquals(handledBy.get(), decodedBy.get());
+		assertEquals(body, decoded.get());
+	}
+
+	/**
+	 * Batches stream their body themselves and are left on the calling thread
+	 */
+	@Test
+	public void testBatchNotOffloaded() {
+		AtomicReference<String> handledBy = new AtomicReference<>();
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/transactions/batch").body("[]")),
+				exchange -> {
+					handledBy.set(Thread.currentThread().getName());
+					return Mono.empty();
+				}).block();
+
+		assertEquals(Thread.currentThread().getName(), handledBy.get());
+	}
+
+	private static String read(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
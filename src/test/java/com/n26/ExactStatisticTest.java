@@ -0,0 +1,105 @@
+package com.n26;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to the exact statistic of the stored transactions
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "store.enabled=true")
+@AutoConfigureMockMvc
+public class ExactStatisticTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * Saved transactions are served from the store, for the last minute or a
+	 * configured window
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExactStatistic() throws Exception {
+		saveTransaction("12.345", -1000);
+		saveTransaction("7", -30000);
+
+		mockMvc.perform(get("/statistics/exact")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.sum").value("19.35")).andExpect(jsonPath("$.max").value("12.35"))
+				.andExpect(jsonPath("$.min").value("7.00")).andExpect(jsonPath("$.count").value(2));
+		mockMvc.perform(get("/statistics/exact").param("window", "10s")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.count").value(1));
+		mockMvc.perform(get("/statistics/exact").param("window", "2s")).andExpect(status().isBadRequest());
+
+		transactionService.deleteTransactions();
+		mockMvc.perform(get("/statistics/exact")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.count").value(0));
+	}
+
+	/**
+	 * Amounts are stored rounded to the scale, and amounts whose scaled value
+	 * does not fit into a long are left out, while the window keeps both
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStoredAmounts() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			saveTransaction("0.004", -1000);
+		}
+		saveTransaction("1E+20", -1000);
+
+		mockMvc.perform(get("/statistics/exact")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.sum").value("0.00")).andExpect(jsonPath("$.count").value(3));
+		mockMvc.perform(get("/statistics")).andExpect(status().isOk()).andExpect(jsonPath("$.count").value(4));
+	}
+
+	/**
+	 * A batch rejected as malformed is not stored
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRejectedBatch() throws Exception {
+		String transaction = "{\"amount\":\"10\",\"timestamp\":\"" + Instant.now().minusSeconds(1) + "\"}";
+		mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + transaction + ",{\"amount\":")).andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/statistics/exact")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.count").value(0));
+	}
+
+	private void saveTransaction(String amount, long offset) throws Exception {
+		String body = "{\"amount\":\"" + amount + "\",\"timestamp\":\"" + Instant.now().plusMillis(offset) + "\"}";
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isCreated());
+	}
+}
@@ -0,0 +1,76 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.model.Statistic;
+import com.n26.window.Bucket;
+import com.n26.window.BucketRing;
+
+/**
+ * Test cases related to fixed-point aggregation of amounts
+ */
+public class FixedPointBucketTest {
+
+	private static final long NOW = 1_000_000L;
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/**
+	 * Fixed-point and BigDecimal arithmetic produce the same JSON
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSameJson() throws Exception {
+		String[] amounts = { "12.06", "43.7", "5", "0.01", "99999.99", "3.335" };
+
+		assertEquals(toJson(aggregate(Bucket.NO_FIXED_POINT, amounts)), toJson(aggregate(2, amounts)));
+		assertEquals(toJson(aggregate(Bucket.NO_FIXED_POINT, amounts)), toJson(aggregate(4, amounts)));
+	}
+
+	/**
+	 * An amount with more decimal places than the scale falls back to
+	 * BigDecimal without losing precision
+	 */
+	@Test
+	public void testPrecisionFallback() {
+		Bucket bucket = new Bucket(2);
+		bucket.add(new BigDecimal("1.25"));
+		bucket.add(new BigDecimal("1.125"));
+
+		assertEquals(0, new BigDecimal("2.375").compareTo(bucket.getSum()));
+		assertEquals(0, new BigDecimal("1.125").compareTo(bucket.getMin()));
+	}
+
+	/**
+	 * A sum overflowing a long falls back to BigDecimal
+	 */
+	@Test
+	public void testOverflowFallback() {
+		BigDecimal amount = BigDecimal.valueOf(Long.MAX_VALUE / 100, 0);
+		Bucket bucket = new Bucket(2);
+		bucket.add(amount);
+		bucket.add(amount);
+
+		assertEquals(0, amount.add(amount).compareTo(bucket.getSum()));
+		assertEquals(2, bucket.getCount());
+	}
+
+	private Statistic aggregate(int scale, String... amounts) {
+		BucketRing bucketRing = new BucketRing(60000, 1000, scale);
+		for (int i = 0; i < amounts.length; i++) {
+			bucketRing.add(new BigDecimal(amounts[i]), NOW - i * 7000, NOW);
+		}
+
+		return bucketRing.getStatistic(NOW);
+	}
+
+	private String toJson(Statistic statistic) throws Exception {
+		return OBJECT_MAPPER.writeValueAsString(statistic);
+	}
+}
@@ -0,0 +1,96 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.n26.admission.IngestAdmission;
+import com.n26.admission.IngestAdmission.Shedding;
+import com.n26.dedup.TransactionIdFilter;
+import com.n26.exception.ShedTransactionException;
+import com.n26.journal.TransactionJournal;
+import com.n26.model.BatchResult;
+import com.n26.model.Transaction;
+import com.n26.service.TransactionService;
+import com.n26.service.impl.TransactionServiceImpl;
+import com.n26.store.TransactionStore;
+import com.n26.window.Bucket;
+import com.n26.window.LockedStatisticWindow;
+import com.n26.window.StatisticArchive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases related to bounding the requests saving transactions
+ */
+public class IngestAdmissionTest {
+
+	/**
+	 * Requests are admitted up to the budget, and again once released
+	 */
+	@Test
+	public void testBudget() {
+		IngestAdmission admission = new IngestAdmission(2, Shedding.REJECT, 10, 1);
+		assertTrue(admission.tryAcquire());
+		assertTrue(admission.tryAcquire());
+		assertFalse(admission.tryAcquire());
+		assertEquals(2, admission.getInFlight());
+
+		admission.release();
+		assertTrue(admission.tryAcquire());
+		assertFalse(admission.isSampled());
+
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(IngestAdmission.UNLIMITED.tryAcquire());
+		}
+	}
+
+	/**
+	 * Beyond the budget, one in the sample rate of the transactions is saved,
+	 * posted one by one or in a batch
+	 */
+	@Test
+	public void testSampling() {
+		IngestAdmission admission = new IngestAdmission(1, Shedding.SAMPLE, 4, 1);
+		TransactionService transactionService = new TransactionServiceImpl(
+				new LockedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT), TransactionJournal.NONE,
+				StatisticArchive.NONE, TransactionStore.NONE, TransactionIdFilter.NONE, admission,
+				Clock.systemUTC(), new SimpleMeterRegistry(), 60000);
+		assertTrue(admission.tryAcquire());
+
+		int shed = 0;
+		for (int i = 0; i < 8; i++) {
+			try {
+				transactionService.saveTransaction(transaction("1"));
+			} catch (ShedTransactionException ex) {
+				shed++;
+			}
+		}
+		assertEquals(6, shed);
+
+		List<Transaction> batch = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			batch.add(transaction("10"));
+		}
+		BatchResult result = transactionService.saveTransactions(batch.iterator());
+		assertEquals(2, result.getAccepted());
+		assertEquals(6, result.getShed());
+		assertEquals(0, new BigDecimal("22").compareTo(transactionService.getStatistic().getSum()));
+
+		admission.release();
+		assertEquals(8, transactionService.saveTransactions(batch.iterator()).getAccepted());
+	}
+
+	private Transaction transaction(String amount) {
+		Transaction transaction = new Transaction();
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setTimestamp(Instant.now());
+		return transaction;
+	}
+}
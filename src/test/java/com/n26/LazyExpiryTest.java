@@ -0,0 +1,61 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.n26.model.Transaction;
+import com.n26.service.TransactionService;
+import com.n26.window.WindowTicker;
+
+/**
+ * Test cases related to expiring buckets without a background thread
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "statistic.expiry=lazy", "cache.time.in.milliseconds=1000",
+		"statistic.windows=", "bucket.time.in.milliseconds=100" })
+public class LazyExpiryTest {
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * No ticker is started and a read after the window has passed expires the
+	 * transaction
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testReadExpires() throws InterruptedException {
+		assertTrue(applicationContext.getBeansOfType(WindowTicker.class).isEmpty());
+
+		Transaction transaction = new Transaction();
+		transaction.setAmount(new BigDecimal("10"));
+		transaction.setTimestamp(Instant.now());
+		transactionService.saveTransaction(transaction);
+		assertEquals(1, transactionService.getStatistic().getCount());
+
+		Thread.sleep(1200);
+		assertEquals(0, transactionService.getStatistic().getCount());
+	}
+}
@@ -0,0 +1,138 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.admission.IngestAdmission;
+import com.n26.dedup.TransactionIdFilter;
+import com.n26.exception.MalformedTransactionBatchException;
+import com.n26.journal.JournalConfig;
+import com.n26.journal.MappedTransactionJournal;
+import com.n26.service.TransactionService;
+import com.n26.service.impl.TransactionServiceImpl;
+import com.n26.store.TransactionStore;
+import com.n26.util.TransactionStreamReader;
+import com.n26.window.Bucket;
+import com.n26.window.LockedStatisticWindow;
+import com.n26.window.StatisticArchive;
+import com.n26.window.StatisticWindow;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases related to journaling transactions into memory-mapped segments
+ */
+public class MappedTransactionJournalTest {
+
+	private static final int SEGMENT_SIZE = 8192;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Transactions within the retention are replayed after a restart, across
+	 * several segments and including amounts beyond the range of a long
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		long now = System.currentTimeMillis();
+		BigDecimal large = new BigDecimal("123456789012345678901234567890.123");
+
+		try (MappedTransactionJournal journal = new MappedTransactionJournal(directory, SEGMENT_SIZE, 60000, 10)) {
+			for (int i = 0; i < 1000; i++) {
+				journal.append(new BigDecimal("10.25"), now - i);
+			}
+			journal.append(large, now);
+			journal.append(new BigDecimal("-3"), now - 60000);
+		}
+
+		List<BigDecimal> amounts = new ArrayList<>();
+		try (MappedTransactionJournal journal = new MappedTransactionJournal(directory, SEGMENT_SIZE, 60000, 10)) {
+			assertEquals(1001, journal.replay(now, (amount, timestamp) -> amounts.add(amount)));
+		}
+		assertEquals(new BigDecimal("10.25"), amounts.get(0));
+		assertEquals(large, amounts.get(1000));
+		assertEquals(1000 * 32 / SEGMENT_SIZE + 1, folder.getRoot().list().length - 1);
+	}
+
+	/**
+	 * Cleared transactions are not replayed
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testClear() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		long now = System.currentTimeMillis();
+
+		try (MappedTransactionJournal journal = new MappedTransactionJournal(directory, SEGMENT_SIZE, 60000, 10)) {
+			journal.append(new BigDecimal("1"), now);
+			journal.clear();
+			journal.append(new BigDecimal("2"), now);
+		}
+
+		List<BigDecimal> amounts = new ArrayList<>();
+		try (MappedTransactionJournal journal = new MappedTransactionJournal(directory, SEGMENT_SIZE, 60000, 10)) {
+			journal.replay(now, (amount, timestamp) -> amounts.add(amount));
+		}
+		assertEquals(1, amounts.size());
+		assertEquals(new BigDecimal("2"), amounts.get(0));
+	}
+
+	/**
+	 * A batch rejected as malformed is not journaled, so it is not replayed
+	 * into the window after a restart
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testRejectedBatch() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		Clock clock = Clock.systemUTC();
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		String transaction = "{\"amount\":\"10\",\"timestamp\":\"" + clock.instant().minusSeconds(1) + "\"}";
+
+		try (MappedTransactionJournal journal = new MappedTransactionJournal(directory, SEGMENT_SIZE, 60000, 10)) {
+			TransactionService transactionService = new TransactionServiceImpl(
+					new LockedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT), journal, StatisticArchive.NONE,
+					TransactionStore.NONE, TransactionIdFilter.NONE, IngestAdmission.UNLIMITED, clock,
+					new SimpleMeterRegistry(), 60000);
+			try {
+				transactionService.saveTransactions(
+						reader(objectMapper, "[" + transaction + "," + transaction + ",{\"amount\":"));
+				fail("Malformed batch saved");
+			} catch (MalformedTransactionBatchException ex) {
+				// Rejected with 400
+			}
+			transactionService.saveTransactions(reader(objectMapper, "[" + transaction + "]"));
+		}
+
+		StatisticWindow restarted = new LockedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT);
+		try (MappedTransactionJournal journal = (MappedTransactionJournal) new JournalConfig().transactionJournal(
+				restarted, TransactionStore.NONE, true, directory.toString(), SEGMENT_SIZE, 10, clock)) {
+			assertEquals(1, restarted.getStatistic(60000, clock.millis()).getCount());
+		}
+	}
+
+	private TransactionStreamReader reader(ObjectMapper objectMapper, String batch) {
+		return new TransactionStreamReader(objectMapper,
+				new ByteArrayInputStream(batch.getBytes(StandardCharsets.UTF_8)));
+	}
+}
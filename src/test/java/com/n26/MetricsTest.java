@@ -0,0 +1,67 @@
+package com.n26;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to the metrics scraped by Prometheus
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * Saved and rejected transactions, the window and its reads are exposed
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testPrometheusScrape() throws Exception {
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"amount\":\"12.3\",\"timestamp\":\"" + Instant.now() + "\"}"))
+				.andExpect(status().isCreated());
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"amount\":\"12.3\",\"timestamp\":\"" + Instant.now().minusSeconds(61) + "\"}"))
+				.andExpect(status().isNoContent());
+		mockMvc.perform(get("/statistics")).andExpect(status().isOk());
+
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk())
+				.andExpect(content().string(containsString("transactions_saved_total{result=\"accepted\",}")))
+				.andExpect(content().string(containsString("transactions_saved_total{result=\"outdated\",}")))
+				.andExpect(content().string(containsString("statistic_window_transactions{window=\"1m\",} 1.0")))
+				.andExpect(content().string(containsString("statistic_window_reads_total{path=\"optimistic\",}")))
+				.andExpect(content().string(containsString("statistic_window_lock_wait_seconds_count")));
+	}
+}
@@ -0,0 +1,112 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.n26.model.Statistic;
+import com.n26.store.OffHeapTransactionStore;
+
+/**
+ * Test cases related to keeping the transactions off the heap
+ */
+public class OffHeapTransactionStoreTest {
+
+	private static final long NOW = 1_000_000L;
+
+	/**
+	 * Chunks of four transactions
+	 */
+	private final OffHeapTransactionStore store = new OffHeapTransactionStore(60000, 64, 2, 1);
+
+	/**
+	 * Transactions leave the statistic to the millisecond, not per bucket
+	 */
+	@Test
+	public void testExactStatistic() {
+		store.append(new BigDecimal("10.50"), NOW - 59999, NOW);
+		store.append(new BigDecimal("5"), NOW - 60000, NOW);
+		store.append(new BigDecimal("-2.125"), NOW - 1000, NOW);
+		store.append(new BigDecimal("20"), NOW, NOW);
+
+		Statistic statistic = store.getStatistic(60000, NOW);
+		assertEquals(new BigDecimal("28.37"), statistic.getSum());
+		assertEquals(new BigDecimal("20.00"), statistic.getMax());
+		assertEquals(new BigDecimal("-2.13"), statistic.getMin());
+		assertEquals(3, statistic.getCount());
+
+		assertEquals(2, store.getStatistic(60000, NOW + 1).getCount());
+		assertEquals(2, store.getStatistic(1001, NOW).getCount());
+		assertEquals(0, store.getStatistic(60000, NOW + 60000).getCount());
+	}
+
+	/**
+	 * Chunks are recycled once their newest transaction is out of the
+	 * retention
+	 */
+	@Test
+	public void testRecycling() {
+		for (int second = 0; second < 600; second++) {
+			long now = NOW + second * 1000L;
+			for (int i = 0; i < 4; i++) {
+				store.append(BigDecimal.ONE, now - i * 1000, now);
+			}
+		}
+
+		// A chunk per second of the retention, and the current one
+		assertTrue(store.getChunkCount() <= 61);
+		assertEquals(60 * 4 - 6, store.getStatistic(60000, NOW + 599000).getCount());
+
+		store.clear();
+		assertEquals(0, store.getStatistic(60000, NOW + 599000).getCount());
+	}
+
+	/**
+	 * A sum overflowing a long is carried over, and an amount which does not
+	 * fit into a scaled long is not stored
+	 */
+	@Test
+	public void testLargeAmounts() {
+		BigDecimal large = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+		store.append(large, NOW, NOW);
+		store.append(large, NOW, NOW);
+		store.append(new BigDecimal("1E+20"), NOW, NOW);
+
+		Statistic statistic = store.getStatistic(60000, NOW);
+		assertEquals(large.add(large), statistic.getSum());
+		assertEquals(2, statistic.getCount());
+	}
+
+	/**
+	 * Concurrent writers spread over the stripes lose no transaction
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrentWriters() throws InterruptedException {
+		OffHeapTransactionStore stripedStore = new OffHeapTransactionStore(60000, 1024, 2, 4);
+		List<Thread> writers = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread writer = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					stripedStore.append(new BigDecimal("0.01"), NOW - j % 1000, NOW);
+				}
+			});
+			writers.add(writer);
+			writer.start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		AtomicLong sum = new AtomicLong();
+		stripedStore.scan(NOW - 59999, NOW, (timestamp, scaledAmount) -> sum.addAndGet(scaledAmount));
+		assertEquals(80000, sum.get());
+		assertEquals(new BigDecimal("800.00"), stripedStore.getStatistic(60000, NOW).getSum());
+	}
+}
@@ -0,0 +1,133 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.n26.model.Statistic;
+import com.n26.window.Bucket;
+import com.n26.window.PipelinedStatisticWindow;
+import com.n26.window.WaitStrategy;
+
+/**
+ * Test cases related to the pipelined statistic window
+ */
+public class PipelinedStatisticWindowTest {
+
+	private static final long NOW = 1_000_000L;
+
+	/**
+	 * Amounts published concurrently with every wait strategy, through a
+	 * buffer much smaller than the number of amounts, are all applied
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			try (PipelinedStatisticWindow statisticWindow = new PipelinedStatisticWindow(60000, 1000,
+					Bucket.NO_FIXED_POINT, 100, waitStrategy)) {
+				addConcurrently(statisticWindow);
+
+				Statistic statistic = statisticWindow.getStatistic(NOW);
+				assertEquals(128, statisticWindow.getBufferSize());
+				assertEquals(0, statisticWindow.getBacklog());
+				assertEquals(waitStrategy.toString(), 8000, statistic.getCount());
+				assertEquals(new BigDecimal("36000"), statistic.getSum());
+				assertEquals(new BigDecimal("8"), statistic.getMax());
+				assertEquals(new BigDecimal("1"), statistic.getMin());
+			}
+		}
+	}
+
+	/**
+	 * A saved amount is visible to the next read, and clearing the window
+	 * drains the buffer first
+	 */
+	@Test
+	public void testReadAndClearAfterAdd() {
+		try (PipelinedStatisticWindow statisticWindow = new PipelinedStatisticWindow(60000, 1000,
+				Bucket.NO_FIXED_POINT, 16, WaitStrategy.SLEEPING)) {
+			statisticWindow.add(new BigDecimal("10"), NOW, NOW);
+			assertEquals(1, statisticWindow.getStatistic(NOW).getCount());
+
+			for (int i = 0; i < 100; i++) {
+				statisticWindow.add(new BigDecimal("10"), NOW, NOW);
+			}
+			statisticWindow.clear();
+			assertEquals(0, statisticWindow.getStatistic(NOW).getCount());
+		}
+	}
+
+	/**
+	 * Amounts added after closing are applied by the writers themselves
+	 */
+	@Test
+	public void testAddAfterClose() {
+		PipelinedStatisticWindow statisticWindow = new PipelinedStatisticWindow(60000, 1000, 2, 4,
+				WaitStrategy.BLOCKING);
+		statisticWindow.add(new BigDecimal("1.5"), NOW, NOW);
+		statisticWindow.close();
+
+		for (int i = 0; i < 10; i++) {
+			statisticWindow.add(new BigDecimal("2.5"), NOW, NOW);
+		}
+		Statistic statistic = statisticWindow.getStatistic(NOW);
+		assertEquals(11, statistic.getCount());
+		assertEquals(new BigDecimal("26.50"), statistic.getSum());
+	}
+
+	/**
+	 * A read waits for a writer which has claimed a slot but not published it
+	 * yet for the read wait at most, and is served from the applied amounts
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testBoundedReadWait() throws Exception {
+		try (PipelinedStatisticWindow statisticWindow = new PipelinedStatisticWindow(new long[] { 60000 }, 1000,
+				Bucket.NO_FIXED_POINT, 0.01, 16, WaitStrategy.BLOCKING, 50)) {
+			statisticWindow.add(new BigDecimal("10"), NOW, NOW);
+			assertEquals(1, statisticWindow.getStatistic(NOW).getCount());
+
+			Field claimedSequence = PipelinedStatisticWindow.class.getDeclaredField("claimedSequence");
+			claimedSequence.setAccessible(true);
+			((AtomicLong) claimedSequence.get(statisticWindow)).incrementAndGet();
+
+			long startedAt = System.nanoTime();
+			assertEquals(1, statisticWindow.getStatistic(NOW).getCount());
+			long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+			assertTrue(waited + " ms", waited >= 50 && waited < 5000);
+		}
+	}
+
+	private void addConcurrently(PipelinedStatisticWindow statisticWindow) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 8; thread++) {
+				final int offset = thread;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						statisticWindow.add(new BigDecimal(offset + 1), NOW - i * 10, NOW);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.n26.window.Bucket;
+import com.n26.window.BucketRing;
+import com.n26.window.QuantileMapping;
+import com.n26.window.QuantileSketch;
+
+/**
+ * Test cases related to the quantile sketches of the sliding window
+ */
+public class QuantileSketchTest {
+
+	private static final long NOW = 1_000_000L;
+
+	private final QuantileMapping mapping = new QuantileMapping(0.01);
+
+	/**
+	 * Quantiles are within the relative accuracy of the exact ones
+	 */
+	@Test
+	public void testAccuracy() {
+		Random random = new Random(7);
+		QuantileSketch sketch = new QuantileSketch(mapping);
+		double[] amounts = new double[10000];
+		for (int i = 0; i < amounts.length; i++) {
+			BigDecimal amount = BigDecimal.valueOf((long) Math.exp(random.nextDouble() * 20), 2);
+			amounts[i] = amount.doubleValue();
+			sketch.add(mapping.keyOf(amount));
+		}
+		Arrays.sort(amounts);
+
+		for (double quantile : new double[] { 0.5, 0.9, 0.99 }) {
+			double exact = amounts[(int) Math.ceil(quantile * amounts.length) - 1];
+			assertEquals(exact, sketch.getValueAt(quantile), exact * 0.01);
+		}
+	}
+
+	/**
+	 * Negative amounts and zero are ordered before positive amounts
+	 */
+	@Test
+	public void testSigns() {
+		QuantileSketch sketch = new QuantileSketch(mapping);
+		sketch.add(mapping.keyOf(new BigDecimal("-100")));
+		sketch.add(mapping.keyOf(new BigDecimal("-1")));
+		sketch.add(mapping.keyOf(BigDecimal.ZERO));
+		sketch.add(mapping.keyOf(new BigDecimal("50")));
+
+		assertEquals(-100, sketch.getValueAt(0.25), 1);
+		assertEquals(-1, sketch.getValueAt(0.5), 0.01);
+		assertEquals(0, sketch.getValueAt(0.75), 0);
+		assertEquals(50, sketch.getValueAt(1), 0.5);
+	}
+
+	/**
+	 * Subtracting a merged sketch restores the counts, thus quantiles of a
+	 * window expire together with its buckets
+	 */
+	@Test
+	public void testExpiry() {
+		BucketRing bucketRing = new BucketRing(new long[] { 10000, 60000 }, 1000, Bucket.NO_FIXED_POINT, 0.01);
+		for (int i = 1; i <= 100; i++) {
+			bucketRing.add(new BigDecimal(i), NOW - 30000, NOW);
+			bucketRing.add(new BigDecimal(1000 + i), NOW - 5000, NOW);
+		}
+
+		QuantileSketch sketch = bucketRing.newQuantileSketch();
+		bucketRing.mergeQuantilesInto(bucketRing.newAccumulator(), sketch, 1, NOW);
+		assertEquals(200, sketch.getCount());
+		assertEquals(100, sketch.getValueAt(0.5), 1);
+
+		sketch = bucketRing.newQuantileSketch();
+		bucketRing.mergeQuantilesInto(bucketRing.newAccumulator(), sketch, 0, NOW);
+		assertEquals(100, sketch.getCount());
+		assertEquals(1050, sketch.getValueAt(0.5), 10.5);
+
+		sketch = bucketRing.newQuantileSketch();
+		bucketRing.mergeQuantilesInto(bucketRing.newAccumulator(), sketch, 1, NOW + 31000);
+		assertEquals(100, sketch.getCount());
+		assertEquals(1090, sketch.getValueAt(0.9), 10.9);
+
+		sketch = bucketRing.newQuantileSketch();
+		bucketRing.mergeQuantilesInto(bucketRing.newAccumulator(), sketch, 0, NOW + 10000);
+		assertEquals(0, sketch.getCount());
+	}
+}
@@ -0,0 +1,106 @@
+package com.n26;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.n26.rest.TransactionController;
+
+/**
+ * Test cases related to the contract of the rest services in reactive mode
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+public class ReactiveModeTest {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	/**
+	 * Skips the test cases from Java 11 on: Spring Boot 2.0 does not recognize
+	 * the ClassCastException message of these versions when applying the
+	 * customizers of the other reactive servers, so the Netty server does not
+	 * start
+	 */
+	@BeforeClass
+	public static void assumeJava8() {
+		String version = System.getProperty("java.specification.version");
+		int feature = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+		assumeTrue("Spring Boot 2.0 can not start Netty on Java " + version, feature < 11);
+	}
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		webTestClient.delete().uri("/transactions").exchange().expectStatus().isNoContent();
+	}
+
+	/**
+	 * Status codes of saving transactions are the same as on the servlet stack
+	 */
+	@Test
+	public void testSaveTransactionStatusCodes() {
+		postTransaction("{\"amount\":\"10.5\",\"timestamp\":\"" + Instant.now() + "\"}").expectStatus().isCreated();
+		postTransaction("{\"amount\":\"10.5\",\"timestamp\":\"" + Instant.now().minusSeconds(61) + "\"}")
+				.expectStatus().isNoContent();
+		postTransaction("{\"amount\":\"10.5\",\"timestamp\":\"" + Instant.now().plusSeconds(61) + "\"}")
+				.expectStatus().isEqualTo(422);
+		postTransaction("{\"amount\":\"One\",\"timestamp\":\"" + Instant.now() + "\"}").expectStatus().isEqualTo(422);
+		postTransaction("{\"amount\":\"10.5\",\"timestamp\":\"4/23/2018 11:32 PM\"}").expectStatus().isEqualTo(422);
+		postTransaction("{\"amount\":\"10.5\",").expectStatus().isBadRequest();
+		postTransaction("{\"amount\":\"10.5\"}").expectStatus().isBadRequest();
+	}
+
+	/**
+	 * Statistics of saved transactions, for the default and a given window
+	 */
+	@Test
+	public void testStatistic() {
+		postTransaction("{\"amount\":\"10.5\",\"timestamp\":\"" + Instant.now() + "\"}").expectStatus().isCreated();
+		postTransaction("{\"amount\":\"20\",\"timestamp\":\"" + Instant.now().minusSeconds(30) + "\"}")
+				.expectStatus().isCreated();
+
+		webTestClient.get().uri("/statistics").exchange().expectStatus().isOk().expectBody().jsonPath("$.sum")
+				.isEqualTo("30.50").jsonPath("$.avg").isEqualTo("15.25").jsonPath("$.max").isEqualTo("20.00")
+				.jsonPath("$.min").isEqualTo("10.50").jsonPath("$.count").isEqualTo(2);
+		webTestClient.get().uri("/statistics?window=10s").exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.count").isEqualTo(1);
+		webTestClient.get().uri("/statistics?window=42s").exchange().expectStatus().isBadRequest();
+	}
+
+	/**
+	 * Save a batch of newline delimited transactions
+	 */
+	@Test
+	public void testBatch() {
+		String body = "{\"amount\":\"1\",\"timestamp\":\"" + Instant.now() + "\"}\n{\"amount\":\"2\",\"timestamp\":\""
+				+ Instant.now().minusSeconds(70) + "\"}\n{\"amount\":\"x\"}\n";
+
+		webTestClient.post().uri("/transactions/batch")
+				.contentType(MediaType.valueOf(TransactionController.APPLICATION_NDJSON_VALUE)).syncBody(body)
+				.exchange().expectStatus().isOk().expectBody().jsonPath("$.accepted").isEqualTo(1)
+				.jsonPath("$.outdated").isEqualTo(1).jsonPath("$.invalid").isEqualTo(1);
+		webTestClient.post().uri("/transactions/batch").contentType(MediaType.APPLICATION_JSON).syncBody("[{")
+				.exchange().expectStatus().isBadRequest();
+	}
+
+	private WebTestClient.ResponseSpec postTransaction(String body) {
+		return webTestClient.post().uri("/transactions").contentType(MediaType.APPLICATION_JSON).syncBody(body)
+				.exchange();
+	}
+}
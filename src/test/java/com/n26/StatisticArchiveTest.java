@@ -0,0 +1,113 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.n26.model.StatisticSlice;
+import com.n26.window.Bucket;
+import com.n26.window.LockedStatisticWindow;
+import com.n26.window.StatisticArchive;
+import com.n26.window.StatisticWindow;
+import com.n26.window.StripedStatisticWindow;
+
+/**
+ * Test cases related to the history of the buckets which have left the window
+ */
+public class StatisticArchiveTest {
+
+	private static final long MINUTE = 60_000L;
+	private static final long HOUR = 3_600_000L;
+	private static final long NOW = 100 * HOUR;
+
+	private final StatisticArchive archive = new StatisticArchive(new long[] { MINUTE, HOUR }, new int[] { 5, 2 },
+			Bucket.NO_FIXED_POINT);
+
+	/**
+	 * Expired buckets are rolled up per minute and per hour, and live ones are
+	 * not archived yet
+	 */
+	@Test
+	public void testRollUp() {
+		StatisticWindow statisticWindow = new LockedStatisticWindow(MINUTE, 1000, Bucket.NO_FIXED_POINT);
+		statisticWindow.setArchive(archive);
+
+		statisticWindow.add(new BigDecimal("10"), NOW, NOW);
+		statisticWindow.add(new BigDecimal("20"), NOW + 30000, NOW + 30000);
+		statisticWindow.add(new BigDecimal("5"), NOW + MINUTE, NOW + MINUTE);
+		statisticWindow.add(new BigDecimal("7"), NOW + MINUTE + 59000, NOW + MINUTE + 59000);
+		statisticWindow.expire(NOW + 2 * MINUTE + 1000);
+
+		List<StatisticSlice> minutes = archive.getHistory(NOW, NOW + HOUR, MINUTE);
+		assertEquals(2, minutes.size());
+		assertEquals(Instant.ofEpochMilli(NOW), minutes.get(0).getStart());
+		assertEquals(new BigDecimal("30"), minutes.get(0).getStatistic().getSum());
+		assertEquals(new BigDecimal("20"), minutes.get(0).getStatistic().getMax());
+		assertEquals(new BigDecimal("10"), minutes.get(0).getStatistic().getMin());
+		assertEquals(2, minutes.get(0).getStatistic().getCount());
+		assertEquals(Instant.ofEpochMilli(NOW + MINUTE), minutes.get(1).getStart());
+		assertEquals(1, minutes.get(1).getStatistic().getCount());
+
+		List<StatisticSlice> hours = archive.getHistory(NOW, NOW + HOUR, HOUR);
+		assertEquals(1, hours.size());
+		assertEquals(new BigDecimal("35"), hours.get(0).getStatistic().getSum());
+		assertEquals(3, hours.get(0).getStatistic().getCount());
+	}
+
+	/**
+	 * The buckets of every stripe are rolled up into the same time slices
+	 */
+	@Test
+	public void testStripes() {
+		StatisticWindow statisticWindow = new StripedStatisticWindow(MINUTE, 1000, 2, 4);
+		statisticWindow.setArchive(archive);
+
+		for (int i = 0; i < 8; i++) {
+			statisticWindow.add(new BigDecimal("1.25"), NOW + i * 1000, NOW + i * 1000);
+		}
+		statisticWindow.expire(NOW + 2 * MINUTE);
+
+		List<StatisticSlice> minutes = archive.getHistory(NOW, NOW + MINUTE, MINUTE);
+		assertEquals(1, minutes.size());
+		assertEquals(new BigDecimal("10.00"), minutes.get(0).getStatistic().getSum());
+		assertEquals(8, minutes.get(0).getStatistic().getCount());
+	}
+
+	/**
+	 * Only the time slices within the retention of a resolution are kept
+	 */
+	@Test
+	public void testRetention() {
+		for (int i = 0; i < 10; i++) {
+			Bucket bucket = new Bucket();
+			bucket.add(new BigDecimal(i));
+			archive.add(bucket, NOW + i * MINUTE);
+		}
+
+		// A bucket older than the retention does not overwrite a newer slice
+		Bucket late = new Bucket();
+		late.add(new BigDecimal("100"));
+		archive.add(late, NOW);
+
+		List<StatisticSlice> minutes = archive.getHistory(NOW, NOW + HOUR, MINUTE);
+		assertEquals(5, minutes.size());
+		assertEquals(Instant.ofEpochMilli(NOW + 5 * MINUTE), minutes.get(0).getStart());
+		assertEquals(new BigDecimal("9"), minutes.get(4).getStatistic().getSum());
+		assertTrue(archive.getHistory(NOW, NOW + 5 * MINUTE, MINUTE).isEmpty());
+
+		assertEquals(new BigDecimal("145"), archive.getHistory(NOW, NOW + HOUR, HOUR).get(0).getStatistic()
+				.getSum());
+	}
+
+	/**
+	 * A resolution which is not configured is rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownResolution() {
+		archive.getHistory(NOW, NOW + HOUR, 1000);
+	}
+}
@@ -0,0 +1,93 @@
+package com.n26;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.service.TransactionService;
+import com.n26.window.Bucket;
+import com.n26.window.StatisticArchive;
+
+/**
+ * Test cases related to serving the history of the statistic
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StatisticHistoryTest {
+
+	private static final Instant START = Instant.parse("2018-04-23T10:00:00Z");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private StatisticArchive statisticArchive;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * Archived time slices within the range are returned with their start
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testHistory() throws Exception {
+		Bucket bucket = new Bucket();
+		bucket.add(new BigDecimal("12.345"));
+		bucket.add(new BigDecimal("7"));
+		statisticArchive.add(bucket, START.toEpochMilli() + 61000);
+
+		mockMvc.perform(get("/statistics/history").param("from", START.toString()).param("to",
+				START.plusSeconds(600).toString())).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].start").value("2018-04-23T10:01:00Z"))
+				.andExpect(jsonPath("$[0].sum").value("19.35")).andExpect(jsonPath("$[0].avg").value("9.67"))
+				.andExpect(jsonPath("$[0].max").value("12.35")).andExpect(jsonPath("$[0].min").value("7.00"))
+				.andExpect(jsonPath("$[0].count").value(2));
+
+		mockMvc.perform(get("/statistics/history").param("from", START.toString())
+				.param("to", START.plusSeconds(7200).toString()).param("resolution", "1h"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$[0].start").value("2018-04-23T10:00:00Z"))
+				.andExpect(jsonPath("$[0].count").value(2));
+	}
+
+	/**
+	 * Unparseable or reversed ranges and unknown resolutions are bad requests
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testInvalidRange() throws Exception {
+		mockMvc.perform(get("/statistics/history").param("from", "yesterday").param("to", START.toString()))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/statistics/history").param("from", START.toString())
+				.param("to", START.minusSeconds(60).toString())).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/statistics/history").param("from", START.toString())
+				.param("to", START.plusSeconds(60).toString()).param("resolution", "1s"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/statistics/history").param("from", START.toString()))
+				.andExpect(status().isBadRequest());
+	}
+}
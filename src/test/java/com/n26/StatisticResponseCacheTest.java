@@ -0,0 +1,69 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.n26.model.Transaction;
+import com.n26.rest.StatisticResponseCache;
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to the cached JSON encoded statistics
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StatisticResponseCacheTest {
+
+	@Autowired
+	private StatisticResponseCache statisticResponseCache;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * The encoded statistic is reused until a transaction changes it
+	 */
+	@Test
+	public void testEncodedOnlyOnChange() {
+		saveTransaction("10");
+		byte[] first = statisticResponseCache.getStatistic(null);
+		assertSame(first, statisticResponseCache.getStatistic(null));
+		assertEquals("{\"sum\":\"10.00\",\"avg\":\"10.00\",\"max\":\"10.00\",\"min\":\"10.00\",\"count\":1}",
+				new String(first, StandardCharsets.UTF_8));
+
+		saveTransaction("20");
+		byte[] second = statisticResponseCache.getStatistic(null);
+		assertNotSame(first, second);
+		assertEquals("{\"sum\":\"30.00\",\"avg\":\"15.00\",\"max\":\"20.00\",\"min\":\"10.00\",\"count\":2}",
+				new String(second, StandardCharsets.UTF_8));
+
+		byte[] tenSeconds = statisticResponseCache.getStatistic(Duration.ofSeconds(10));
+		assertSame(tenSeconds, statisticResponseCache.getStatistic(Duration.ofSeconds(10)));
+	}
+
+	private void saveTransaction(String amount) {
+		Transaction transaction = new Transaction();
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setTimestamp(Instant.now().minusSeconds(2));
+		transactionService.saveTransaction(transaction);
+	}
+}
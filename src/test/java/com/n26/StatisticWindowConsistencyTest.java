@@ -0,0 +1,115 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.n26.model.Statistic;
+import com.n26.window.Bucket;
+import com.n26.window.LockedStatisticWindow;
+import com.n26.window.PipelinedStatisticWindow;
+import com.n26.window.StatisticWindow;
+import com.n26.window.StripedStatisticWindow;
+import com.n26.window.WaitStrategy;
+
+/**
+ * Test cases checking that readers always see a consistent statistic while
+ * writers are adding amounts
+ */
+public class StatisticWindowConsistencyTest {
+
+	private static final long NOW = 1_000_000L;
+
+	private static final BigDecimal ONE = new BigDecimal("1.00");
+
+	/**
+	 * Reading a single ring guarded by a lock
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testLockedWindow() throws Exception {
+		assertConsistentReads(new LockedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT));
+	}
+
+	/**
+	 * Reading and merging several stripes with fixed-point buckets
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStripedWindow() throws Exception {
+		assertConsistentReads(new StripedStatisticWindow(60000, 1000, 2, 4));
+	}
+
+	/**
+	 * Reading a ring written by a single consumer thread
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPipelinedWindow() throws Exception {
+		try (PipelinedStatisticWindow statisticWindow = new PipelinedStatisticWindow(60000, 1000, 2, 1024,
+				WaitStrategy.YIELDING)) {
+			assertConsistentReads(statisticWindow);
+		}
+	}
+
+	/**
+	 * Every amount is 1, thus sum must always equal count and avg, max and min
+	 * must always be 1
+	 */
+	private void assertConsistentReads(StatisticWindow statisticWindow) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < 20000; i++) {
+						statisticWindow.add(ONE, NOW - i % 50000, NOW);
+					}
+				}));
+			}
+
+			List<Future<Integer>> readers = new ArrayList<>();
+			for (int thread = 0; thread < 2; thread++) {
+				readers.add(executor.submit(() -> {
+					int reads = 0;
+					while (writing.get()) {
+						Statistic statistic = statisticWindow.getStatistic(NOW);
+						if (statistic.getCount() > 0) {
+							assertEquals(statistic.getCount(), statistic.getSum().longValueExact());
+							assertEquals(0, ONE.compareTo(statistic.getAvg()));
+							assertEquals(0, ONE.compareTo(statistic.getMax()));
+							assertEquals(0, ONE.compareTo(statistic.getMin()));
+						}
+						reads++;
+					}
+					return reads;
+				}));
+			}
+
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+			writing.set(false);
+			for (Future<Integer> reader : readers) {
+				assertTrue(reader.get() > 0);
+			}
+		} finally {
+			writing.set(false);
+			executor.shutdown();
+		}
+
+		assertEquals(80000, statisticWindow.getStatistic(NOW).getCount());
+	}
+}
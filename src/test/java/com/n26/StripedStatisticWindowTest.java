@@ -0,0 +1,73 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.n26.model.Statistic;
+import com.n26.window.Bucket;
+import com.n26.window.StripedStatisticWindow;
+
+/**
+ * Test cases related to the striped statistic window
+ */
+public class StripedStatisticWindowTest {
+
+	private static final long NOW = 1_000_000L;
+
+	/**
+	 * Amounts added concurrently to different stripes are all merged into the
+	 * statistic
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		StripedStatisticWindow statisticWindow = new StripedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT, 4);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 8; thread++) {
+				final int offset = thread;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						statisticWindow.add(new BigDecimal(offset + 1), NOW - i * 10, NOW);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		Statistic statistic = statisticWindow.getStatistic(NOW);
+		assertEquals(4, statisticWindow.getStripeCount());
+		assertEquals(8000, statistic.getCount());
+		assertEquals(new BigDecimal("36000"), statistic.getSum());
+		assertEquals(new BigDecimal("8"), statistic.getMax());
+		assertEquals(new BigDecimal("1"), statistic.getMin());
+		assertEquals(new BigDecimal("4.50"), statistic.getAvg());
+	}
+
+	/**
+	 * Clearing the window empties every stripe
+	 */
+	@Test
+	public void testClear() {
+		StripedStatisticWindow statisticWindow = new StripedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT, 3);
+		statisticWindow.add(new BigDecimal("10"), NOW, NOW);
+		statisticWindow.clear();
+
+		assertEquals(4, statisticWindow.getStripeCount());
+		assertEquals(0, statisticWindow.getStatistic(NOW).getCount());
+	}
+}
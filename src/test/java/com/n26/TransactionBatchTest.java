@@ -0,0 +1,107 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.model.Statistic;
+import com.n26.rest.TransactionController;
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to saving batches of transactions
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TransactionBatchTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * Save a JSON array containing valid, outdated, future dated and invalid
+	 * transactions
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testJsonArray() throws Exception {
+		String body = "[" + transaction("10.50", -1000) + "," + transaction("20", -2000) + ","
+				+ transaction("30", -70000) + "," + transaction("40", 70000) + ","
+				+ "{\"amount\":\"One hundred\",\"timestamp\":\"" + Instant.now() + "\"}," + "{\"amount\":\"5\"}]";
+
+		mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.accepted").value(2))
+				.andExpect(jsonPath("$.outdated").value(1)).andExpect(jsonPath("$.futureDated").value(1))
+				.andExpect(jsonPath("$.invalid").value(2));
+
+		Statistic statistic = transactionService.getStatistic();
+		assertEquals(new BigDecimal("30.50"), statistic.getSum());
+		assertEquals(2, statistic.getCount());
+	}
+
+	/**
+	 * Save newline delimited JSON objects
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testNdjson() throws Exception {
+		String body = transaction("1", -1000) + "\n" + transaction("2", -30000) + "\n" + transaction("3", -50000)
+				+ "\n";
+
+		mockMvc.perform(post("/transactions/batch")
+				.contentType(MediaType.valueOf(TransactionController.APPLICATION_NDJSON_VALUE)).content(body))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.accepted").value(3));
+
+		Statistic statistic = transactionService.getStatistic();
+		assertEquals(new BigDecimal("6"), statistic.getSum());
+		assertEquals(new BigDecimal("3"), statistic.getMax());
+		assertEquals(new BigDecimal("1"), statistic.getMin());
+	}
+
+	/**
+	 * A malformed batch is rejected as a whole
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testMalformedBatch() throws Exception {
+		String body = "[" + transaction("10", -1000) + ", {\"amount\": ";
+
+		mockMvc.perform(post("/transactions/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isBadRequest());
+
+		assertEquals(0, transactionService.getStatistic().getCount());
+	}
+
+	private String transaction(String amount, long offset) {
+		return "{\"amount\":\"" + amount + "\",\"timestamp\":\"" + Instant.now().plusMillis(offset) + "\"}";
+	}
+}
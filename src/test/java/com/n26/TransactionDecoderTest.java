@@ -0,0 +1,132 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.n26.model.Transaction;
+import com.n26.util.TransactionDecoder;
+
+/**
+ * Test cases related to decoding a posted transaction
+ */
+public class TransactionDecoderTest {
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final TransactionDecoder transactionDecoder = new TransactionDecoder(objectMapper);
+
+	/**
+	 * The usual payloads decode to the same transaction as with Jackson
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSameAsJackson() throws IOException {
+		String[] payloads = { "{\"amount\":\"12.3343\",\"timestamp\":\"2018-07-17T09:59:51.312Z\"}",
+				"{\"timestamp\":\"2020-02-29T23:59:59Z\",\"amount\":\"-0.50\"}",
+				" {\n\t\"amount\" : 10.5 ,\r\n \"timestamp\" : \"1970-01-01T00:00:00.000000001Z\" } ",
+				"{\"amount\":0,\"timestamp\":\"2000-12-31T12:00:00.1Z\"}",
+				"{\"amount\":\"007\",\"timestamp\":\"1900-03-01T00:00:00.123456Z\"}",
+				"{\"amount\":\"999999999999999999\",\"timestamp\":\"" + Instant.now() + "\"}",
+				"{\"id\":\"gw-1/4711\",\"amount\":\"1.5\",\"timestamp\":\"2018-07-17T09:59:51Z\"}",
+				"{\"amount\":\"1.5\",\"timestamp\":\"2018-07-17T09:59:51Z\", \"id\" : \"\"}" };
+
+		for (String payload : payloads) {
+			Transaction expected = objectMapper.readValue(payload, Transaction.class);
+			assertEquals(payload, expected, decode(payload));
+		}
+	}
+
+	/**
+	 * The usual payloads are decoded without Jackson, which can not map an
+	 * {@link Instant} without the Java time module
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testWithoutJackson() throws IOException {
+		TransactionDecoder decoder = new TransactionDecoder(new ObjectMapper());
+		byte[] payload = "{\"amount\":\"12.30\",\"timestamp\":\"2018-07-17T09:59:51.312Z\"}"
+				.getBytes(StandardCharsets.UTF_8);
+
+		Transaction transaction = decoder.decode(payload, payload.length);
+		assertEquals(new BigDecimal("12.30"), transaction.getAmount());
+		assertEquals(Instant.parse("2018-07-17T09:59:51.312Z"), transaction.getTimestamp());
+	}
+
+	/**
+	 * An id of plain characters is decoded without Jackson as well
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testIdWithoutJackson() throws IOException {
+		TransactionDecoder decoder = new TransactionDecoder(new ObjectMapper());
+		byte[] payload = "{\"amount\":\"12.30\",\"timestamp\":\"2018-07-17T09:59:51.312Z\",\"id\":\"42\"}"
+				.getBytes(StandardCharsets.UTF_8);
+
+		Transaction transaction = decoder.decode(payload, payload.length);
+		assertEquals(new BigDecimal("12.30"), transaction.getAmount());
+		assertEquals(Instant.parse("2018-07-17T09:59:51.312Z"), transaction.getTimestamp());
+		assertEquals("42", transaction.getId());
+	}
+
+	/**
+	 * Other payloads are decoded by Jackson
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testFallback() throws IOException {
+		Transaction transaction = decode(
+				"{\"amount\":\"1e2\",\"time\\u0073tamp\":\"2018-07-17T09:59:51Z\",\"currency\":\"EUR\"}");
+		assertEquals(0, new BigDecimal("100").compareTo(transaction.getAmount()));
+		assertEquals(Instant.parse("2018-07-17T09:59:51Z"), transaction.getTimestamp());
+
+		transaction = decode("{\"amount\":\"1\",\"timestamp\":\"2018-07-17T09:59:51Z\",\"id\":\"caf\u00e9\\n\"}");
+		assertEquals("caf\u00e9\n", transaction.getId());
+
+		transaction = decode("{\"amount\":\"1\"}");
+		assertEquals(new BigDecimal("1"), transaction.getAmount());
+		assertNull(transaction.getTimestamp());
+
+		transaction = decode("{\"amount\":\"12345678901234567890.5\",\"timestamp\":\"2018-02-28T00:00:00Z\"}");
+		assertEquals(new BigDecimal("12345678901234567890.5"), transaction.getAmount());
+	}
+
+	/**
+	 * Invalid payloads fail with the same exceptions as with Jackson
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testErrors() throws IOException {
+		assertFails(InvalidFormatException.class, "{\"amount\":\"One hundred\",\"timestamp\":\"" + Instant.now() + "\"}");
+		assertFails(InvalidFormatException.class, "{\"amount\":\"262.01\",\"timestamp\":\"4/23/2018 11:32 PM\"}");
+		assertFails(InvalidFormatException.class, "{\"amount\":\"1\",\"timestamp\":\"2018-02-29T00:00:00Z\"}");
+		assertFails(JsonParseException.class, "Hello world!");
+		assertFails(JsonParseException.class, "{\"amount\":01,\"timestamp\":\"2018-02-28T00:00:00Z\"}");
+	}
+
+	private Transaction decode(String payload) throws IOException {
+		byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+		return transactionDecoder.decode(bytes, bytes.length);
+	}
+
+	private void assertFails(Class<? extends IOException> expected, String payload) {
+		try {
+			decode(payload);
+			fail("Decoded " + payload);
+		} catch (IOException ex) {
+			assertEquals(payload, expected, ex.getClass());
+		}
+	}
+}
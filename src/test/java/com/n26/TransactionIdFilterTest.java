@@ -0,0 +1,101 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.n26.dedup.TimePartitionedIdFilter;
+
+/**
+ * Test cases related to remembering the ids of the transactions of the window
+ */
+public class TransactionIdFilterTest {
+
+	private static final long NOW = 1_000_000L;
+
+	/**
+	 * Four slices of 15 seconds, for at most 100 ids each
+	 */
+	private final TimePartitionedIdFilter filter = new TimePartitionedIdFilter(60000, 4, 400);
+
+	/**
+	 * An id is remembered together with the timestamp, and transactions
+	 * without an id are always counted
+	 */
+	@Test
+	public void testDuplicates() {
+		assertTrue(filter.add("a", NOW));
+		assertFalse(filter.add("a", NOW));
+		assertTrue(filter.add("a", NOW + 1));
+		assertTrue(filter.add("b", NOW));
+		assertFalse(filter.add("b", NOW));
+
+		assertTrue(filter.add(null, NOW));
+		assertTrue(filter.add(null, NOW));
+
+		filter.clear();
+		assertTrue(filter.add("a", NOW));
+	}
+
+	/**
+	 * Ids are remembered for the whole window after their timestamp, and their
+	 * slice is dropped once the ring has moved past it
+	 */
+	@Test
+	public void testExpiry() {
+		assertTrue(filter.add("a", NOW));
+		for (long second = 1; second <= 60; second++) {
+			assertTrue(filter.add("b" + second, NOW + second * 1000));
+		}
+		assertFalse(filter.add("a", NOW));
+
+		assertTrue(filter.add("c", NOW + 75000));
+		assertTrue(filter.add("a", NOW));
+	}
+
+	/**
+	 * Ids beyond the capacity of a slice are not remembered, so their
+	 * transactions are counted
+	 */
+	@Test
+	public void testCapacity() {
+		for (int i = 0; i < 100; i++) {
+			assertTrue(filter.add("id" + i, NOW));
+		}
+		assertTrue(filter.add("id100", NOW));
+		assertTrue(filter.add("id100", NOW));
+		assertFalse(filter.add("id99", NOW));
+	}
+
+	/**
+	 * Concurrent posts of the same ids count every id once
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrentPosts() throws InterruptedException {
+		TimePartitionedIdFilter largeFilter = new TimePartitionedIdFilter(60000, 4, 400000);
+		AtomicInteger counted = new AtomicInteger();
+		List<Thread> posters = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread poster = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					if (largeFilter.add("id" + j, NOW + j)) {
+						counted.incrementAndGet();
+					}
+				}
+			});
+			posters.add(poster);
+			poster.start();
+		}
+		for (Thread poster : posters) {
+			poster.join();
+		}
+
+		assertEquals(10000, counted.get());
+	}
+}
@@ -0,0 +1,121 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.n26.admission.IngestAdmission;
+import com.n26.clock.SimulatedClock;
+import com.n26.dedup.TransactionIdFilter;
+import com.n26.journal.TransactionJournal;
+import com.n26.model.BatchResult;
+import com.n26.model.Transaction;
+import com.n26.replay.TransactionReplayer;
+import com.n26.service.TransactionService;
+import com.n26.service.impl.TransactionServiceImpl;
+import com.n26.store.TransactionStore;
+import com.n26.window.Bucket;
+import com.n26.window.LockedStatisticWindow;
+import com.n26.window.StatisticArchive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases related to replaying recorded transactions on simulated time
+ */
+public class TransactionReplayTest {
+
+	private static final long START = 1_600_000_000_000L;
+
+	private final SimulatedClock clock = new SimulatedClock(0);
+
+	private final TransactionService transactionService = new TransactionServiceImpl(
+			new LockedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT), TransactionJournal.NONE,
+			StatisticArchive.NONE, TransactionStore.NONE, TransactionIdFilter.NONE, IngestAdmission.UNLIMITED, clock,
+			new SimpleMeterRegistry(), 60000);
+
+	/**
+	 * The simulated clock only moves forward
+	 */
+	@Test
+	public void testSimulatedClock() {
+		assertEquals(START, clock.advanceTo(START));
+		assertEquals(START, clock.advanceTo(START - 1));
+		assertEquals(Instant.ofEpochMilli(START), clock.instant());
+	}
+
+	/**
+	 * A view of the simulated clock in another zone moves with it
+	 */
+	@Test
+	public void testSimulatedClockZone() {
+		ZoneId zone = ZoneId.of("Europe/Berlin");
+		SimulatedClock view = clock.withZone(zone);
+		assertEquals(zone, view.getZone());
+		assertEquals(view, clock.withZone(zone));
+		assertEquals(view.hashCode(), clock.withZone(zone).hashCode());
+		assertNotEquals(clock, view);
+		assertNotEquals(new SimulatedClock(0), clock);
+		assertEquals(clock, view.withZone(ZoneOffset.UTC));
+
+		view.advanceTo(START);
+		assertEquals(START, clock.millis());
+		assertEquals(ZonedDateTime.ofInstant(Instant.ofEpochMilli(START), zone), ZonedDateTime.now(view));
+	}
+
+	/**
+	 * A row is written at every interval, and transactions leave the window
+	 * on simulated time rather than on the wall clock
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSeries() throws IOException {
+		StringBuilder series = new StringBuilder();
+		BatchResult result = new TransactionReplayer(transactionService, clock, 1000).replay(
+				Arrays.asList(transaction("10", 500), transaction("20.5", 1500), transaction("5", 70200)).iterator(),
+				series);
+		assertEquals(3, result.getAccepted());
+
+		List<String> rows = Arrays.asList(series.toString().split("\n"));
+		assertEquals(72, rows.size());
+		assertEquals("time,sum,avg,max,min,count,variance,stddev", rows.get(0));
+		assertEquals(Instant.ofEpochMilli(START + 1000) + ",10.00,10.00,10.00,10.00,1,0.00,0.00", rows.get(1));
+		assertEquals(Instant.ofEpochMilli(START + 2000) + ",30.50,15.25,20.50,10.00,2,27.56,5.25", rows.get(2));
+		assertEquals(Instant.ofEpochMilli(START + 62000) + ",0.00,0.00,0.00,0.00,0,0.00,0.00", rows.get(62));
+		assertEquals(Instant.ofEpochMilli(START + 71000) + ",5.00,5.00,5.00,5.00,1,0.00,0.00", rows.get(71));
+	}
+
+	/**
+	 * A transaction recorded out of order is still saved within the window,
+	 * and counted as outdated beyond
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testOutOfOrder() throws IOException {
+		StringBuilder series = new StringBuilder();
+		BatchResult result = new TransactionReplayer(transactionService, clock, 60000).replay(Arrays
+				.asList(transaction("1", 100000), transaction("2", 90000), transaction("4", 30000)).iterator(),
+				series);
+		assertEquals(2, result.getAccepted());
+		assertEquals(1, result.getOutdated());
+		assertEquals(2, transactionService.getStatistic().getCount());
+	}
+
+	private Transaction transaction(String amount, long offset) {
+		Transaction transaction = new Transaction();
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setTimestamp(Instant.ofEpochMilli(START + offset));
+		return transaction;
+	}
+}
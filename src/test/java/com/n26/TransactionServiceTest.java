@@ -3,6 +3,7 @@ package com.n26;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 
 import org.junit.After;
@@ -13,6 +14,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.n26.exception.OutDatedTransactionException;
+import com.n26.exception.UnknownWindowException;
+import com.n26.model.Quantiles;
 import com.n26.model.Statistic;
 import com.n26.model.Transaction;
 import com.n26.service.TransactionService;
@@ -180,4 +183,56 @@ public class TransactionServiceTest {
 		assertEquals(1, statistic.getCount());
 		assertEquals(new BigDecimal("50.00"), statistic.getAvg());
 	}
+
+	/**
+	 * Getting statistics of the configured windows, which share the saved
+	 * transactions
+	 */
+	@Test
+	public void testWindowStatistic() {
+		Transaction transaction = new Transaction();
+		transaction.setAmount(new BigDecimal("10"));
+		transaction.setTimestamp(Instant.now().minusSeconds(5));
+		transactionService.saveTransaction(transaction);
+
+		transaction = new Transaction();
+		transaction.setAmount(new BigDecimal("20"));
+		transaction.setTimestamp(Instant.now().minusSeconds(30));
+		transactionService.saveTransaction(transaction);
+
+		assertEquals(0, transactionService.getStatistic(Duration.ofSeconds(1)).getCount());
+		assertEquals(new BigDecimal("10"), transactionService.getStatistic(Duration.ofSeconds(10)).getSum());
+		assertEquals(new BigDecimal("30"), transactionService.getStatistic(Duration.ofSeconds(60)).getSum());
+		assertEquals(new BigDecimal("30"), transactionService.getStatistic(Duration.ofMinutes(5)).getSum());
+	}
+
+	/**
+	 * Try to get the statistic of a window which is not configured
+	 */
+	@Test(expected = UnknownWindowException.class)
+	public void testUnknownWindow() {
+		transactionService.getStatistic(Duration.ofSeconds(42));
+	}
+
+	/**
+	 * Getting quantiles of the amounts, bounded by the exact max and min
+	 */
+	@Test
+	public void testQuantiles() {
+		for (int i = 1; i <= 100; i++) {
+			Transaction transaction = new Transaction();
+			transaction.setAmount(new BigDecimal(i));
+			transaction.setTimestamp(Instant.now().minusSeconds(i % 20));
+			transactionService.saveTransaction(transaction);
+		}
+
+		Quantiles quantiles = transactionService.getQuantiles();
+		assertEquals(100, quantiles.getCount());
+		assertEquals(50, quantiles.getP50().doubleValue(), 0.5);
+		assertEquals(90, quantiles.getP90().doubleValue(), 0.9);
+		assertEquals(99, quantiles.getP99().doubleValue(), 0.99);
+		assertTrue(quantiles.getP99().compareTo(new BigDecimal(100)) <= 0);
+
+		assertEquals(5, transactionService.getQuantiles(Duration.ofSeconds(1)).getCount());
+	}
 }
@@ -0,0 +1,85 @@
+package com.n26;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to the variance and standard deviation of the statistic
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class VarianceStatisticTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * Variance and standard deviation are served with the statistic of every
+	 * window, and are zero without transactions
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testVariance() throws Exception {
+		mockMvc.perform(get("/statistics/variance")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.variance").value("0.00")).andExpect(jsonPath("$.stddev").value("0.00"));
+
+		saveTransaction("10", -1000);
+		saveTransaction("20.5", -20000);
+		saveTransaction("13", -2000);
+
+		mockMvc.perform(get("/statistics/variance")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.count").value(3)).andExpect(jsonPath("$.variance").value("19.50"))
+				.andExpect(jsonPath("$.stddev").value("4.42"));
+		mockMvc.perform(get("/statistics/variance").param("window", "10s")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.variance").value("2.25")).andExpect(jsonPath("$.stddev").value("1.50"));
+	}
+
+	/**
+	 * The statistic itself is served without variance and standard deviation
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStatisticWithoutVariance() throws Exception {
+		saveTransaction("10", -1000);
+		saveTransaction("20", -2000);
+
+		mockMvc.perform(get("/statistics")).andExpect(status().isOk()).andExpect(jsonPath("$.count").value(2))
+				.andExpect(jsonPath("$.variance").doesNotExist()).andExpect(jsonPath("$.stddev").doesNotExist());
+	}
+
+	private void saveTransaction(String amount, long offset) throws Exception {
+		String body = "{\"amount\":\"" + amount + "\",\"timestamp\":\"" + Instant.now().plusMillis(offset) + "\"}";
+		mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isCreated());
+	}
+}
@@ -0,0 +1,148 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNoException;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.n26.service.TransactionService;
+
+/**
+ * Test cases related to serving the requests on virtual threads, skipped
+ * before Java 21
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.threads.virtual.enabled=true")
+public class VirtualThreadServerTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private ServletWebServerApplicationContext context;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	/**
+	 * Skips the test cases if virtual threads are not available
+	 */
+	@BeforeClass
+	public static void assumeVirtualThreads() {
+		try {
+			Thread.class.getMethod("isVirtual");
+		} catch (NoSuchMethodException ex) {
+			assumeNoException(ex);
+		}
+	}
+
+	/**
+	 * Cleans the transaction cache after each test
+	 */
+	@After
+	public void cleanTransactions() {
+		transactionService.deleteTransactions();
+	}
+
+	/**
+	 * Tomcat runs the requests on virtual threads, which save transactions
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testVirtualThreads() throws Exception {
+		Executor executor = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector().getProtocolHandler()
+				.getExecutor();
+		CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				virtual.complete((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+			} catch (ReflectiveOperationException ex) {
+				virtual.completeExceptionally(ex);
+			}
+		});
+		assertTrue(virtual.get());
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		String transaction = "{\"amount\":\"10\",\"timestamp\":\"" + Instant.now() + "\"}";
+		assertEquals(HttpStatus.CREATED,
+				restTemplate.postForEntity("/transactions", new HttpEntity<>(transaction, headers), Void.class)
+						.getStatusCode());
+		assertEquals(1, transactionService.getStatistic().getCount());
+	}
+
+	/**
+	 * A body sent in pieces is read ahead and the transaction is saved once it
+	 * is complete
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSlowBody() throws Exception {
+		String transaction = "{\"amount\":\"10\",\"timestamp\":\"" + Instant.now() + "\"}";
+		byte[] body = transaction.getBytes(StandardCharsets.UTF_8);
+		try (Socket socket = new Socket("localhost", port)) {
+			OutputStream output = socket.getOutputStream();
+			String headers = "POST /transactions HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+					+ "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+			output.write(headers.getBytes(StandardCharsets.UTF_8));
+			output.write(body, 0, body.length / 2);
+			output.flush();
+			Thread.sleep(200);
+			output.write(body, body.length / 2, body.length - body.length / 2);
+			output.flush();
+
+			String status = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+					.readLine();
+			assertEquals("HTTP/1.1 201 ", status);
+		}
+		assertEquals(1, transactionService.getStatistic().getCount());
+	}
+
+	/**
+	 * The executor is shut down with the application context
+	 */
+	@Test
+	public void testShutdown() {
+		ConfigurableApplicationContext application = new SpringApplicationBuilder(Application.class)
+				.properties("server.port=0", "spring.threads.virtual.enabled=true").run();
+		TomcatWebServer webServer = (TomcatWebServer) ((ServletWebServerApplicationContext) application).getWebServer();
+		ExecutorService executor = (ExecutorService) webServer.getTomcat().getConnector().getProtocolHandler()
+				.getExecutor();
+		assertFalse(executor.isShutdown());
+
+		application.close();
+		assertTrue(executor.isShutdown());
+	}
+}
@@ -0,0 +1,62 @@
+package com.n26;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+
+import org.junit.Test;
+
+import com.n26.window.Bucket;
+import com.n26.window.LockedStatisticWindow;
+import com.n26.window.StatisticWindow;
+import com.n26.window.StripedStatisticWindow;
+import com.n26.window.WindowTicker;
+
+/**
+ * Test cases related to advancing the window at bucket boundaries
+ */
+public class WindowTickerTest {
+
+	private static final long NOW = 1_000_000L;
+
+	/**
+	 * Once advanced, readers find no expired bucket and read without the lock
+	 */
+	@Test
+	public void testExpire() {
+		StatisticWindow statisticWindow = new StripedStatisticWindow(60000, 1000, Bucket.NO_FIXED_POINT, 2);
+		statisticWindow.add(new BigDecimal("10"), NOW - 30000, NOW);
+		statisticWindow.add(new BigDecimal("20"), NOW, NOW);
+
+		statisticWindow.expire(NOW + 31000);
+		assertEquals(1, statisticWindow.getMetrics().getExpiredBuckets());
+
+		assertEquals(1, statisticWindow.getStatistic(NOW + 31000).getCount());
+		assertEquals(0, statisticWindow.getMetrics().getLockedReads());
+
+		// Nothing left to expire
+		statisticWindow.expire(NOW + 31000);
+		assertEquals(1, statisticWindow.getMetrics().getExpiredBuckets());
+	}
+
+	/**
+	 * The ticker expires buckets of an idle window
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testTicker() throws InterruptedException {
+		StatisticWindow statisticWindow = new LockedStatisticWindow(100, 10, Bucket.NO_FIXED_POINT);
+		long now = System.currentTimeMillis();
+		statisticWindow.add(new BigDecimal("10"), now, now);
+
+		try (WindowTicker ticker = new WindowTicker(statisticWindow, 10, Clock.systemUTC())) {
+			long deadline = now + 5000;
+			while (statisticWindow.getMetrics().getExpiredBuckets() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		}
+		assertEquals(1, statisticWindow.getMetrics().getExpiredBuckets());
+	}
+}